@@ -1,6 +1,8 @@
 package mx.unam.ciencias.edd;
 
 import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
 
 /**
  * <p>Clase para árboles binarios ordenados. Los árboles son genéricos, pero
@@ -388,4 +390,15 @@ public class ArbolBinarioOrdenado<T extends Comparable<T>>
     @Override public Iterator<T> iterator() {
         return new Iterador();
     }
+
+    /**
+     * Regresa un {@link Spliterator} del árbol, que lo recorre en orden.
+     * @return un {@link Spliterator} del árbol.
+     */
+    @Override public Spliterator<T> spliterator() {
+        return Spliterators.spliterator(iterator(), elementos,
+                                        Spliterator.ORDERED |
+                                        Spliterator.SORTED |
+                                        Spliterator.NONNULL);
+    }
 }
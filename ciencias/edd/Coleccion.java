@@ -1,10 +1,16 @@
 package mx.unam.ciencias.edd;
 
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
  * <p>Interface para colecciones, con operaciones para agregar y eliminar
  * elementos, y consultar si un elemento está contenido, así como para obtener
  * el número de elementos en la colección. Además, Las colecciones son
- * iterables.</p>
+ * iterables, y se pueden procesar con flujos (<em>streams</em>), también en
+ * paralelo.</p>
  *
  * <p>Las colecciones no aceptan a <code>null</code> como elemento; el
  * comportamiento de las clases que implementen esta interfaz no está definido
@@ -52,4 +58,33 @@ public interface Coleccion<T> extends Iterable<T> {
      * Limpia la colección de elementos, dejándola vacía.
      */
     public void limpia();
+
+    /**
+     * Regresa un {@link Spliterator} de la colección que conoce su tamaño. Por
+     * omisión se divide copiando bloques del iterador a arreglos, lo que sirve
+     * para cualquier colección; las que pueden dividirse directamente sobre
+     * su estructura lo sobrecargan.
+     * @return un {@link Spliterator} de la colección.
+     */
+    @Override default Spliterator<T> spliterator() {
+        return Spliterators.spliterator(iterator(), getElementos(), 0);
+    }
+
+    /**
+     * Regresa un flujo secuencial con los elementos de la colección.
+     * @return un flujo secuencial con los elementos de la colección.
+     */
+    default Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Regresa un flujo, posiblemente paralelo, con los elementos de la
+     * colección.
+     * @return un flujo posiblemente paralelo con los elementos de la
+     *         colección.
+     */
+    default Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
 }
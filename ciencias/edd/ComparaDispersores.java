@@ -0,0 +1,137 @@
+package mx.unam.ciencias.edd;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.text.NumberFormat;
+
+/**
+ * Programa que compara los algoritmos de {@link AlgoritmoDispersor} sobre las
+ * palabras de un corpus. Para cada algoritmo mide cuántos gigabytes por
+ * segundo dispersa (sobre la codificación en UTF-8 de las palabras), y llena
+ * un {@link Diccionario} con las palabras para reportar sus colisiones y su
+ * colisión máxima.
+ */
+public class ComparaDispersores {
+
+    /* Número de veces que se dispersan todas las palabras al medir. */
+    private static final int REPETICIONES = 10;
+
+    /* Imprime el uso del programa y lo termina. */
+    private static void uso() {
+        System.err.println("Uso: java mx.unam.ciencias.edd.ComparaDispersores " +
+                           "ARCHIVO...");
+        System.exit(1);
+    }
+
+    /* Dispersa todas las palabras con el algoritmo, y regresa la suma de
+     * las dispersiones para que no se eliminen los cálculos. */
+    private static long dispersa(AlgoritmoDispersor algoritmo, byte[][] palabras) {
+        long suma = 0;
+        switch (algoritmo) {
+        case XOR_STRING:
+            for (byte[] p : palabras)
+                suma += Dispersores.dispersaXOR(p);
+            break;
+        case BJ_STRING:
+            for (byte[] p : palabras)
+                suma += Dispersores.dispersaBJ(p);
+            break;
+        case DJB_STRING:
+            for (byte[] p : palabras)
+                suma += Dispersores.dispersaDJB(p);
+            break;
+        case MURMUR3_STRING:
+            for (byte[] p : palabras)
+                suma += Dispersores.dispersaMurmur3(p);
+            break;
+        case XXH32_STRING:
+            for (byte[] p : palabras)
+                suma += Dispersores.dispersaXXH32(p);
+            break;
+        case XXH64_STRING:
+            for (byte[] p : palabras)
+                suma += Dispersores.dispersaXXH64(p);
+            break;
+        case WYHASH_STRING:
+            for (byte[] p : palabras)
+                suma += Dispersores.dispersaWyhash(p);
+            break;
+        }
+        return suma;
+    }
+
+    /* Regresa las palabras de los archivos, en minúsculas y en orden; si no
+     * se puede leer algún archivo, termina el programa. También la usa
+     * ReporteDispersores. */
+    static Lista<String> leePalabras(String[] archivos) {
+        Lista<String> palabras = new Lista<String>();
+        try {
+            for (String archivo : archivos) {
+                try (BufferedReader br = new BufferedReader(new FileReader(archivo))) {
+                    String linea;
+                    while ((linea = br.readLine()) != null)
+                        for (String s : linea.toLowerCase().split("\\P{L}+"))
+                            if (!s.equals(""))
+                                palabras.agrega(s);
+                }
+            }
+        } catch (IOException ioe) {
+            System.err.println("Error al leer los archivos: " + ioe.getMessage());
+            System.exit(1);
+        }
+        return palabras;
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0)
+            uso();
+
+        Lista<String> lista = leePalabras(args);
+        if (lista.esVacia()) {
+            System.err.println("Los archivos no tienen palabras.");
+            System.exit(1);
+        }
+
+        String[] cadenas = new String[lista.getElementos()];
+        byte[][] palabras = new byte[cadenas.length][];
+        long bytes = 0;
+        int i = 0;
+        for (String s : lista) {
+            cadenas[i] = s;
+            palabras[i] = s.getBytes(StandardCharsets.UTF_8);
+            bytes += palabras[i++].length;
+        }
+        double gigas = (double)bytes * REPETICIONES / (1024.0 * 1024.0 * 1024.0);
+
+        NumberFormat nf = NumberFormat.getIntegerInstance();
+        System.out.printf("%s palabras, %s bytes.\n",
+                          nf.format(cadenas.length), nf.format(bytes));
+        System.out.printf("%-16s %8s %10s %12s %10s\n", "Algoritmo", "GB/s",
+                          "Llaves", "Colisiones", "Máxima");
+
+        long suma = 0;
+        for (AlgoritmoDispersor algoritmo : AlgoritmoDispersor.values()) {
+            /* Se calienta la máquina virtual antes de medir. */
+            suma += dispersa(algoritmo, palabras);
+            long tiempoInicial = System.nanoTime();
+            for (int r = 0; r < REPETICIONES; r++)
+                suma += dispersa(algoritmo, palabras);
+            long tiempoTotal = System.nanoTime() - tiempoInicial;
+
+            Diccionario<String, Integer> diccionario =
+                new Diccionario<String, Integer>(
+                    FabricaDispersores.dispersorCadena(algoritmo));
+            for (String s : cadenas)
+                diccionario.combina(s, 1, Integer::sum);
+
+            System.out.printf("%-16s %8.3f %10s %12s %10s\n", algoritmo,
+                              gigas / (tiempoTotal/1000000000.0),
+                              nf.format(diccionario.getElementos()),
+                              nf.format(diccionario.colisiones()),
+                              nf.format(diccionario.colisionMaxima()));
+        }
+        System.out.printf("Suma de control: %d\n", suma);
+    }
+}
@@ -1,6 +1,7 @@
 package mx.unam.ciencias.edd;
 
 import java.util.Iterator;
+import java.util.Spliterator;
 
 /**
  * Clase para conjuntos.
@@ -151,4 +152,13 @@ public class Conjunto<T> implements Coleccion<T> {
     @Override public Iterator<T> iterator() {
         return conjunto.iterator();
     }
+
+    /**
+     * Regresa un {@link Spliterator} del conjunto, que se divide por rangos
+     * de casillas de su diccionario.
+     * @return un {@link Spliterator} del conjunto.
+     */
+    @Override public Spliterator<T> spliterator() {
+        return conjunto.spliteratorLlaves();
+    }
 }
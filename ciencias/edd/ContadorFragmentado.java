@@ -0,0 +1,200 @@
+package mx.unam.ciencias.edd;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Clase para contar palabras desde varios hilos sin compartir ninguna
+ * tabla. Cada hilo cuenta en su propio {@link ContadorPalabras} (su
+ * <em>fragmento</em>), que sólo él modifica, así que contar no necesita
+ * ninguna sincronización. Al final los fragmentos se combinan por parejas, en
+ * paralelo, en un árbol de tareas de <em>fork-join</em>.</p>
+ *
+ * <p>El fragmento de un hilo de un {@link ForkJoinPool} se guarda en un
+ * arreglo, en la posición del hilo dentro de su grupo, y se encuentra sin
+ * sincronización; los fragmentos de otros hilos se buscan en un diccionario
+ * protegido por un candado. Al combinar, el contador suelta todos sus
+ * fragmentos, y ningún hilo se queda con referencias a ellos.</p>
+ *
+ * <p>La combinación reporta su costo: cuánto tardó, cuántos fragmentos
+ * combinó y cuántas entradas tuvo que mover de un fragmento a otro.</p>
+ */
+public class ContadorFragmentado {
+
+    /* Tarea que combina un rango de fragmentos. Cada mitad se combina por
+     * separado, y el fragmento más chico se combina en el más grande. */
+    @SuppressWarnings("serial")
+    private class Combinacion extends RecursiveTask<ContadorPalabras> {
+
+        /* Los fragmentos. */
+        private ContadorPalabras[] arreglo;
+        /* El primer fragmento del rango. */
+        private int inicio;
+        /* El fragmento siguiente al último del rango. */
+        private int fin;
+
+        /* Construye una tarea para los fragmentos [inicio, fin). */
+        public Combinacion(ContadorPalabras[] arreglo, int inicio, int fin) {
+            this.arreglo = arreglo;
+            this.inicio = inicio;
+            this.fin = fin;
+        }
+
+        /* Combina los fragmentos del rango. */
+        @Override protected ContadorPalabras compute() {
+            if (fin - inicio == 1)
+                return arreglo[inicio];
+            int mitad = (inicio + fin) / 2;
+            Combinacion izquierda = new Combinacion(arreglo, inicio, mitad);
+            izquierda.fork();
+            ContadorPalabras d = new Combinacion(arreglo, mitad, fin).compute();
+            ContadorPalabras i = izquierda.join();
+            ContadorPalabras grande = i, chico = d;
+            if (i.getElementos() < d.getElementos()) {
+                grande = d;
+                chico = i;
+            }
+            grande.combina(chico);
+            movidas.addAndGet(chico.getElementos());
+            return grande;
+        }
+    }
+
+    /* Los fragmentos de los hilos del grupo, por su posición en el grupo. */
+    private volatile ContadorPalabras[] porIndice;
+    /* El grupo de los hilos con fragmento en el arreglo. */
+    private volatile ForkJoinPool grupo;
+    /* Los fragmentos de los hilos que no son del grupo. */
+    private Diccionario<Thread, ContadorPalabras> externos;
+    /* Todos los fragmentos creados; también es el candado para crearlos. */
+    private Lista<ContadorPalabras> fragmentos;
+    /* Cuántas entradas se movieron en la última combinación. */
+    private AtomicLong movidas;
+    /* Cuánto tardó la última combinación, en nanosegundos. */
+    private long tiempoCombinacion;
+    /* Cuántos fragmentos se combinaron en la última combinación. */
+    private int fragmentosCombinados;
+
+    /**
+     * Construye un contador fragmentado sin fragmentos.
+     */
+    public ContadorFragmentado() {
+        fragmentos = new Lista<ContadorPalabras>();
+        movidas = new AtomicLong();
+        porIndice = new ContadorPalabras[0];
+        externos = new Diccionario<Thread, ContadorPalabras>();
+    }
+
+    /* Crea el fragmento de un hilo que todavía no tiene. Los hilos del grupo
+     * lo guardan en su posición del arreglo; los demás, en el diccionario. */
+    private ContadorPalabras registra(Thread hilo) {
+        synchronized (fragmentos) {
+            if (hilo instanceof ForkJoinWorkerThread) {
+                ForkJoinWorkerThread t = (ForkJoinWorkerThread)hilo;
+                if (grupo == null)
+                    grupo = t.getPool();
+                if (t.getPool() == grupo) {
+                    int i = t.getPoolIndex();
+                    if (i >= porIndice.length) {
+                        int n = Math.max(2 * porIndice.length, i + 1);
+                        porIndice = Arrays.copyOf(porIndice, n);
+                    }
+                    if (porIndice[i] == null)
+                        porIndice[i] = nuevo();
+                    return porIndice[i];
+                }
+            }
+            ContadorPalabras fragmento = externos.getOPorOmision(hilo, null);
+            if (fragmento == null) {
+                fragmento = nuevo();
+                externos.agrega(hilo, fragmento);
+            }
+            return fragmento;
+        }
+    }
+
+    /* Crea un fragmento y lo registra. Debe llamarse con el candado. */
+    private ContadorPalabras nuevo() {
+        ContadorPalabras fragmento = new ContadorPalabras();
+        fragmentos.agrega(fragmento);
+        return fragmento;
+    }
+
+    /**
+     * Regresa el fragmento del hilo actual; la primera vez que un hilo lo
+     * pide se crea. El fragmento sólo debe usarse desde el hilo que lo pidió.
+     * @return el fragmento del hilo actual.
+     */
+    public ContadorPalabras fragmento() {
+        Thread hilo = Thread.currentThread();
+        if (hilo instanceof ForkJoinWorkerThread) {
+            ForkJoinWorkerThread t = (ForkJoinWorkerThread)hilo;
+            ContadorPalabras[] a = porIndice;
+            int i = t.getPoolIndex();
+            if (t.getPool() == grupo && i < a.length && a[i] != null)
+                return a[i];
+        }
+        return registra(hilo);
+    }
+
+    /**
+     * Combina todos los fragmentos en un solo contador, usando el grupo de
+     * hilos de <em>fork-join</em> actual (o el común). Debe llamarse cuando
+     * todos los hilos hayan terminado de contar, y después de que su trabajo
+     * sea visible para el hilo que combina (por ejemplo, después de esperar
+     * sus tareas). Después de combinar, el contador fragmentado se queda sin
+     * fragmentos.
+     * @return el contador con la suma de todos los fragmentos.
+     */
+    public ContadorPalabras combina() {
+        ContadorPalabras[] arreglo;
+        synchronized (fragmentos) {
+            arreglo = new ContadorPalabras[fragmentos.getElementos()];
+            int i = 0;
+            for (ContadorPalabras fragmento : fragmentos)
+                arreglo[i++] = fragmento;
+            fragmentos.limpia();
+            porIndice = new ContadorPalabras[0];
+            grupo = null;
+            externos.limpia();
+        }
+
+        movidas.set(0);
+        fragmentosCombinados = arreglo.length;
+        long tiempoInicial = System.nanoTime();
+        ContadorPalabras resultado = arreglo.length == 0 ?
+            new ContadorPalabras() :
+            new Combinacion(arreglo, 0, arreglo.length).invoke();
+        tiempoCombinacion = System.nanoTime() - tiempoInicial;
+        return resultado;
+    }
+
+    /**
+     * Regresa cuánto tardó la última combinación, en nanosegundos.
+     * @return cuánto tardó la última combinación.
+     */
+    public long getTiempoCombinacion() {
+        return tiempoCombinacion;
+    }
+
+    /**
+     * Regresa cuántos fragmentos se combinaron en la última combinación.
+     * @return cuántos fragmentos se combinaron.
+     */
+    public int getFragmentosCombinados() {
+        return fragmentosCombinados;
+    }
+
+    /**
+     * Regresa cuántas entradas se movieron de un fragmento a otro en la
+     * última combinación; es la suma de los tamaños de los fragmentos más
+     * chicos de cada pareja.
+     * @return cuántas entradas se movieron en la última combinación.
+     */
+    public long getEntradasMovidas() {
+        return movidas.get();
+    }
+}
@@ -0,0 +1,552 @@
+package mx.unam.ciencias.edd;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.SecureRandom;
+
+/**
+ * <p>Clase para contar palabras fuera del <em>heap</em>. Es una tabla con
+ * direccionamiento abierto y sondeo lineal, como {@link ContadorPalabras},
+ * pero sus casillas y sus llaves viven en buffers directos: el recolector de
+ * basura no tiene que recorrerlos ni moverlos, así que contar vocabularios
+ * enormes no alarga sus pausas.</p>
+ *
+ * <p>Cada casilla ocupa 16 bytes: la posición de su llave en la arena, la
+ * dispersión de la llave y su cuenta. Las llaves se guardan en páginas de
+ * {@link #PAGINA} bytes, precedidas por su longitud, con cada carácter
+ * codificado en uno, dos o tres bytes como en UTF-8. Las llaves se dispersan
+ * con un {@link Dispersor} de secuencias de caracteres; las palabras que
+ * llegan como rangos de un arreglo se dispersan y comparan sin crear
+ * cadenas.</p>
+ *
+ * <p>La memoria se puede acotar: la tabla nunca usa más bytes fuera del heap
+ * que el límite recibido, y lanza {@link IllegalStateException} si
+ * necesitaría más. Los buffers no se liberan sino hasta que el recolector de
+ * basura los reclama, así que los que la tabla deja al crecer o al limpiarse
+ * siguen reservados un rato más: el límite acota la memoria en uso, no la
+ * que el proceso tiene reservada en un momento dado.</p>
+ */
+public class ContadorFueraDelHeap implements TablaConteo {
+
+    /* Clase interna privada para ver un rango de un arreglo de caracteres
+     * como una secuencia, sin copiarlo. */
+    private static class Rebanada implements CharSequence {
+
+        /* El arreglo. */
+        private char[] buffer;
+        /* Dónde empieza el rango. */
+        private int inicio;
+        /* La longitud del rango. */
+        private int longitud;
+
+        /* Cambia el rango de la rebanada. */
+        public Rebanada define(char[] buffer, int inicio, int longitud) {
+            this.buffer = buffer;
+            this.inicio = inicio;
+            this.longitud = longitud;
+            return this;
+        }
+
+        /* Regresa la longitud del rango. */
+        @Override public int length() {
+            return longitud;
+        }
+
+        /* Regresa un carácter del rango. */
+        @Override public char charAt(int i) {
+            return buffer[inicio + i];
+        }
+
+        /* Regresa una subsecuencia del rango. */
+        @Override public CharSequence subSequence(int desde, int hasta) {
+            return new String(buffer, inicio + desde, hasta - desde);
+        }
+
+        /* Regresa el rango como cadena. */
+        @Override public String toString() {
+            return new String(buffer, inicio, longitud);
+        }
+    }
+
+    /* Clase interna privada para cursores. */
+    private class Cursor implements CursorConteo {
+
+        /* La casilla actual. */
+        private int indice;
+
+        /* Construye un nuevo cursor antes de la primera casilla. */
+        public Cursor() {
+            indice = -1;
+        }
+
+        /* Avanza a la siguiente casilla ocupada. */
+        @Override public boolean siguiente() {
+            while (++indice < casillas)
+                if (posicion(indice) != 0)
+                    return true;
+            return false;
+        }
+
+        /* Regresa la llave de la casilla actual. */
+        @Override public String llave() {
+            return decodifica(posicion(indice));
+        }
+
+        /* Regresa la cuenta de la casilla actual. */
+        @Override public int cuenta() {
+            return tabla.getInt(indice * CASILLA + 12);
+        }
+    }
+
+    /** Máxima carga permitida por la tabla. */
+    public static final double MAXIMA_CARGA = 0.6;
+
+    /** Tamaño de cada página de la arena, en bytes. */
+    public static final int PAGINA = 1 << 24;
+
+    /* Bytes de cada casilla. */
+    private static final int CASILLA = 16;
+
+    /* Capacidad mínima; decidida arbitrariamente a 2^10. */
+    private static final int MINIMA_CAPACIDAD = 1024;
+
+    /* Máximo número de casillas que caben en un buffer directo. */
+    private static final int MAXIMAS_CASILLAS = 1 << 26;
+
+    /* Fuente de semillas para los dispersores predeterminados. */
+    private static final SecureRandom SEMILLAS = new SecureRandom();
+
+    /* El dispersor. */
+    private Dispersor<? super CharSequence> dispersor;
+    /* Las casillas. */
+    private ByteBuffer tabla;
+    /* Número de casillas. */
+    private int casillas;
+    /* Las páginas de la arena. */
+    private ByteBuffer[] paginas;
+    /* Número de páginas usadas. */
+    private int usadas;
+    /* Cuántos bytes de la última página están ocupados. */
+    private int ocupados;
+    /* Número de llaves. */
+    private int elementos;
+    /* Suma de todas las cuentas. */
+    private long total;
+    /* Máximo número de bytes fuera del heap. */
+    private long limite;
+    /* Bytes en uso fuera del heap. */
+    private long memoria;
+    /* La rebanada que se reutiliza para dispersar rangos. */
+    private Rebanada rebanada;
+
+    /**
+     * Construye una tabla con una capacidad inicial y un dispersor
+     * predeterminados, y sin límite de memoria.
+     */
+    public ContadorFueraDelHeap() {
+        this(MINIMA_CAPACIDAD, Long.MAX_VALUE);
+    }
+
+    /**
+     * Construye una tabla para un número esperado de palabras distintas, que
+     * nunca usa más memoria fuera del heap que el límite recibido. Las llaves
+     * se dispersan con Murmur3 y una semilla aleatoria, distinta para cada
+     * tabla, para que nadie pueda elegir palabras que choquen a propósito.
+     * @param capacidad el número esperado de palabras distintas.
+     * @param limite el máximo número de bytes a usar fuera del heap.
+     * @throws IllegalArgumentException si el límite no alcanza para la
+     *         capacidad inicial.
+     */
+    public ContadorFueraDelHeap(int capacidad, long limite) {
+        this(capacidad, limite, dispersorAleatorio());
+    }
+
+    /**
+     * Construye una tabla para un número esperado de palabras distintas, que
+     * nunca usa más memoria fuera del heap que el límite recibido.
+     * @param capacidad el número esperado de palabras distintas.
+     * @param limite el máximo número de bytes a usar fuera del heap.
+     * @param dispersor el dispersor de las llaves.
+     * @throws IllegalArgumentException si el dispersor es nulo, o si el
+     *         límite no alcanza para la capacidad inicial.
+     */
+    public ContadorFueraDelHeap(int capacidad, long limite,
+                                Dispersor<? super CharSequence> dispersor) {
+        if (dispersor == null)
+            throw new IllegalArgumentException();
+        this.dispersor = dispersor;
+        this.limite = limite;
+        int c = MINIMA_CAPACIDAD;
+        while (c * MAXIMA_CARGA <= capacidad && c < MAXIMAS_CASILLAS)
+            c *= 2;
+        if ((long)c * CASILLA + PAGINA > limite)
+            throw new IllegalArgumentException("El límite no alcanza para " +
+                                               "la capacidad inicial");
+        rebanada = new Rebanada();
+        inicializa(c);
+    }
+
+    /* Regresa un dispersor Murmur3 con una semilla aleatoria. */
+    private static Dispersor<CharSequence> dispersorAleatorio() {
+        int semilla = SEMILLAS.nextInt();
+        return c -> Dispersores.dispersaMurmur3(c, semilla);
+    }
+
+    /* Reserva las casillas y la primera página. */
+    private void inicializa(int c) {
+        memoria = 0;
+        tabla = reserva((long)c * CASILLA);
+        casillas = c;
+        paginas = new ByteBuffer[4];
+        paginas[0] = reserva(PAGINA);
+        usadas = 1;
+        /* El byte 0 no se usa, para que ninguna llave empiece en la
+         * posición 0. */
+        ocupados = 1;
+        elementos = 0;
+        total = 0;
+    }
+
+    /* Reserva un buffer directo, respetando el límite de memoria. */
+    private ByteBuffer reserva(long bytes) {
+        if (memoria + bytes > limite)
+            throw new IllegalStateException("Se rebasó el límite de memoria " +
+                                            "fuera del heap");
+        memoria += bytes;
+        return ByteBuffer.allocateDirect((int)bytes)
+            .order(ByteOrder.nativeOrder());
+    }
+
+    /* Mezcla los bits de la dispersión para que el sondeo lineal no dependa
+     * sólo de los bits bajos. */
+    private static int mezcla(int h) {
+        h *= 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    /* Regresa la posición de la llave de una casilla, o 0 si está vacía. */
+    private long posicion(int i) {
+        return tabla.getLong(i * CASILLA);
+    }
+
+    /* Regresa la página de una posición. */
+    private ByteBuffer pagina(long p) {
+        return paginas[(int)(p / PAGINA)];
+    }
+
+    /* Regresa cuántos bytes ocupa un carácter en la arena. */
+    private static int bytes(char c) {
+        return c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+    }
+
+    /**
+     * Incrementa en uno la cuenta de la palabra.
+     * @param palabra la palabra a contar.
+     * @return la nueva cuenta de la palabra.
+     * @throws IllegalArgumentException si la palabra es nula.
+     */
+    public int incrementa(String palabra) {
+        return incrementa(palabra, 1);
+    }
+
+    /**
+     * Incrementa la cuenta de la palabra. Si la palabra no estaba en la
+     * tabla, se agrega con la cuenta recibida.
+     * @param palabra la palabra a contar.
+     * @param n cuánto incrementar la cuenta.
+     * @return la nueva cuenta de la palabra.
+     * @throws IllegalArgumentException si la palabra es nula.
+     * @throws IllegalStateException si se rebasa el límite de memoria.
+     */
+    @Override public int incrementa(String palabra, int n) {
+        if (palabra == null)
+            throw new IllegalArgumentException();
+        return incrementa(palabra, n, mezcla(dispersor.dispersa(palabra)));
+    }
+
+    /**
+     * Incrementa en uno la cuenta de la palabra formada por un rango de
+     * caracteres. El rango se dispersa y se compara contra la arena sin crear
+     * ninguna cadena.
+     * @param buffer el arreglo con los caracteres de la palabra.
+     * @param inicio dónde empieza la palabra en el arreglo.
+     * @param longitud la longitud de la palabra.
+     * @return la nueva cuenta de la palabra.
+     * @throws IllegalStateException si se rebasa el límite de memoria.
+     */
+    @Override public int incrementa(char[] buffer, int inicio, int longitud) {
+        CharSequence s = rebanada.define(buffer, inicio, longitud);
+        return incrementa(s, 1, mezcla(dispersor.dispersa(s)));
+    }
+
+    /* Incrementa la cuenta de una secuencia ya dispersada. */
+    private int incrementa(CharSequence s, int n, int h) {
+        int m = 0;
+        for (int k = 0; k < s.length(); k++)
+            m += bytes(s.charAt(k));
+        int i = casilla(s, h, m);
+        total += n;
+        int d = i * CASILLA;
+        if (tabla.getLong(d) != 0) {
+            int c = tabla.getInt(d + 12) + n;
+            tabla.putInt(d + 12, c);
+            return c;
+        }
+        long p = escribe(s, m);
+        tabla.putLong(d, p);
+        tabla.putInt(d + 8, h);
+        tabla.putInt(d + 12, n);
+        if (++elementos >= casillas * MAXIMA_CARGA)
+            crece();
+        return n;
+    }
+
+    /* Regresa la casilla de la secuencia de m bytes, o la casilla vacía
+     * donde debería ir. */
+    private int casilla(CharSequence s, int h, int m) {
+        int mascara = casillas - 1;
+        int i = h & mascara;
+        long p;
+        while ((p = posicion(i)) != 0) {
+            if (tabla.getInt(i * CASILLA + 8) == h && iguales(p, s, m))
+                return i;
+            i = (i + 1) & mascara;
+        }
+        return i;
+    }
+
+    /* Escribe una secuencia de m bytes al final de la arena, precedida por
+     * su longitud, y regresa su posición. */
+    private long escribe(CharSequence s, int m) {
+        int necesarios = m + 5;
+        if (necesarios > PAGINA)
+            throw new IllegalArgumentException("La palabra no cabe en una página");
+        if (PAGINA - ocupados < necesarios) {
+            if (usadas == paginas.length) {
+                ByteBuffer[] nuevas = new ByteBuffer[paginas.length * 2];
+                System.arraycopy(paginas, 0, nuevas, 0, usadas);
+                paginas = nuevas;
+            }
+            paginas[usadas++] = reserva(PAGINA);
+            ocupados = 0;
+        }
+        ByteBuffer b = paginas[usadas - 1];
+        long posicion = (long)(usadas - 1) * PAGINA + ocupados;
+        int q = ocupados;
+        int n = m;
+        while (n >= 0x80) {
+            b.put(q++, (byte)(n | 0x80));
+            n >>>= 7;
+        }
+        b.put(q++, (byte)n);
+        for (int k = 0; k < s.length(); k++) {
+            char c = s.charAt(k);
+            if (c < 0x80) {
+                b.put(q++, (byte)c);
+            } else if (c < 0x800) {
+                b.put(q++, (byte)(0xC0 | (c >> 6)));
+                b.put(q++, (byte)(0x80 | (c & 0x3F)));
+            } else {
+                b.put(q++, (byte)(0xE0 | (c >> 12)));
+                b.put(q++, (byte)(0x80 | ((c >> 6) & 0x3F)));
+                b.put(q++, (byte)(0x80 | (c & 0x3F)));
+            }
+        }
+        ocupados = q;
+        return posicion;
+    }
+
+    /* Nos dice si la llave en la posición tiene los mismos m bytes que la
+     * secuencia codificada. */
+    private boolean iguales(long p, CharSequence s, int m) {
+        ByteBuffer b = pagina(p);
+        int q = (int)(p % PAGINA);
+        int n = 0;
+        int corrimiento = 0;
+        byte x;
+        do {
+            x = b.get(q++);
+            n |= (x & 0x7F) << corrimiento;
+            corrimiento += 7;
+        } while (x < 0);
+        if (n != m)
+            return false;
+        for (int k = 0; k < s.length(); k++) {
+            char c = s.charAt(k);
+            if (c < 0x80) {
+                if (b.get(q++) != (byte)c)
+                    return false;
+            } else if (c < 0x800) {
+                if (b.get(q++) != (byte)(0xC0 | (c >> 6)) ||
+                    b.get(q++) != (byte)(0x80 | (c & 0x3F)))
+                    return false;
+            } else {
+                if (b.get(q++) != (byte)(0xE0 | (c >> 12)) ||
+                    b.get(q++) != (byte)(0x80 | ((c >> 6) & 0x3F)) ||
+                    b.get(q++) != (byte)(0x80 | (c & 0x3F)))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /* Regresa la cadena de la llave en la posición. */
+    private String decodifica(long p) {
+        ByteBuffer b = pagina(p);
+        int q = (int)(p % PAGINA);
+        int n = 0;
+        int corrimiento = 0;
+        byte x;
+        do {
+            x = b.get(q++);
+            n |= (x & 0x7F) << corrimiento;
+            corrimiento += 7;
+        } while (x < 0);
+        int fin = q + n;
+        char[] c = new char[n];
+        int k = 0;
+        while (q < fin) {
+            int y = b.get(q) & 0xFF;
+            if (y < 0x80) {
+                c[k++] = (char)y;
+                q++;
+            } else if (y < 0xE0) {
+                c[k++] = (char)(((y & 0x1F) << 6) | (b.get(q + 1) & 0x3F));
+                q += 2;
+            } else {
+                c[k++] = (char)(((y & 0x0F) << 12) |
+                                ((b.get(q + 1) & 0x3F) << 6) |
+                                (b.get(q + 2) & 0x3F));
+                q += 3;
+            }
+        }
+        return new String(c, 0, k);
+    }
+
+    /* Duplica las casillas y redistribuye las llaves con sus dispersiones
+     * guardadas. */
+    private void crece() {
+        if (casillas == MAXIMAS_CASILLAS)
+            throw new IllegalStateException("La tabla no puede crecer más");
+        ByteBuffer vieja = tabla;
+        int viejas = casillas;
+        tabla = reserva((long)viejas * 2 * CASILLA);
+        memoria -= (long)viejas * CASILLA;
+        casillas = viejas * 2;
+        int mascara = casillas - 1;
+        for (int j = 0; j < viejas; j++) {
+            long p = vieja.getLong(j * CASILLA);
+            if (p == 0)
+                continue;
+            int h = vieja.getInt(j * CASILLA + 8);
+            int i = h & mascara;
+            while (posicion(i) != 0)
+                i = (i + 1) & mascara;
+            tabla.putLong(i * CASILLA, p);
+            tabla.putInt(i * CASILLA + 8, h);
+            tabla.putInt(i * CASILLA + 12, vieja.getInt(j * CASILLA + 12));
+        }
+    }
+
+    /**
+     * Regresa la cuenta de la palabra.
+     * @param palabra la palabra de la que queremos su cuenta.
+     * @return la cuenta de la palabra, o 0 si no está en la tabla.
+     */
+    @Override public int get(String palabra) {
+        if (palabra == null)
+            return 0;
+        int i = casilla(palabra);
+        return posicion(i) == 0 ? 0 : tabla.getInt(i * CASILLA + 12);
+    }
+
+    /* Regresa la casilla de la cadena, o la casilla vacía donde debería
+     * ir. */
+    private int casilla(String palabra) {
+        int m = 0;
+        for (int k = 0; k < palabra.length(); k++)
+            m += bytes(palabra.charAt(k));
+        return casilla(palabra, mezcla(dispersor.dispersa(palabra)), m);
+    }
+
+    /**
+     * Nos dice si una palabra está en la tabla.
+     * @param palabra la palabra que queremos ver si está en la tabla.
+     * @return <code>true</code> si la palabra está en la tabla,
+     *         <code>false</code> en otro caso.
+     */
+    public boolean contiene(String palabra) {
+        if (palabra == null)
+            return false;
+        return posicion(casilla(palabra)) != 0;
+    }
+
+    /**
+     * Regresa el número de palabras distintas en la tabla.
+     * @return el número de palabras distintas en la tabla.
+     */
+    @Override public int getElementos() {
+        return elementos;
+    }
+
+    /**
+     * Regresa la suma de las cuentas de todas las palabras.
+     * @return la suma de las cuentas de todas las palabras.
+     */
+    @Override public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Regresa cuántos bytes usa la tabla fuera del heap. No cuenta los
+     * buffers que la tabla ya soltó y el recolector de basura todavía no
+     * reclama.
+     * @return cuántos bytes usa la tabla fuera del heap.
+     */
+    public long getMemoria() {
+        return memoria;
+    }
+
+    /**
+     * Nos dice si la tabla es vacía.
+     * @return <code>true</code> si la tabla es vacía, <code>false</code> en
+     *         otro caso.
+     */
+    public boolean esVacia() {
+        return elementos == 0;
+    }
+
+    /**
+     * Limpia la tabla, dejándola vacía con la capacidad mínima. Los buffers
+     * anteriores se liberan cuando el recolector de basura los reclama.
+     */
+    public void limpia() {
+        tabla = null;
+        paginas = null;
+        inicializa(MINIMA_CAPACIDAD);
+    }
+
+    /**
+     * Regresa un cursor para recorrer las palabras de la tabla con sus
+     * cuentas. La tabla se recorre sin ningún orden específico.
+     * @return un cursor para recorrer la tabla.
+     */
+    @Override public CursorConteo cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Regresa una representación en cadena de la tabla.
+     * @return una representación en cadena de la tabla.
+     */
+    @Override public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        if (!esVacia())
+            sb.append(" ");
+        CursorConteo c = cursor();
+        while (c.siguiente())
+            sb.append("'").append(c.llave()).append("': '")
+              .append(c.cuenta()).append("', ");
+        return sb.append("}").toString();
+    }
+}
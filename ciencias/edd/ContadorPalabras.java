@@ -0,0 +1,568 @@
+package mx.unam.ciencias.edd;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>Clase para contar palabras. Es un diccionario especializado de cadenas a
+ * enteros con direccionamiento abierto: las posiciones de las llaves, sus
+ * dispersiones y sus cuentas viven en tres arreglos paralelos, y las
+ * colisiones se resuelven con sondeo lineal.</p>
+ *
+ * <p>Las llaves no se guardan como cadenas: todas viven una tras otra en un
+ * solo arreglo de bytes (la <em>arena</em>), cada una precedida por su
+ * longitud, y cada casilla sólo guarda la posición de su llave. Cada carácter
+ * se codifica en uno, dos o tres bytes como en UTF-8 (los sustitutos se
+ * codifican uno por uno), así que una palabra en ASCII ocupa un byte por
+ * carácter. Las búsquedas comparan los caracteres recibidos directamente
+ * contra los bytes de la arena, y la cadena de una llave sólo se crea cuando
+ * se pide.</p>
+ *
+ * <p>A diferencia de {@link Diccionario}, no crea ningún objeto por entrada
+ * (ni cadenas, ni listas, ni nodos, ni enteros envueltos), y la dispersión de
+ * cada llave se guarda para no recalcularla al comparar ni al crecer.</p>
+ *
+ * <p>Las llaves se dispersan con la mezcla de MurmurHash3 sobre sus
+ * caracteres, con una semilla aleatoria que se elige al cargar la clase, así
+ * que no se pueden preparar de antemano palabras que choquen, como sí se
+ * puede con {@link String#hashCode}. Todos los contadores comparten la
+ * semilla, para que {@link #combina} pueda reutilizar las dispersiones de
+ * otro contador.</p>
+ */
+public class ContadorPalabras implements TablaConteo {
+
+    /* Clase interna privada para cursores. */
+    private class Cursor implements CursorConteo {
+
+        /* La casilla actual. */
+        private int indice;
+
+        /* Construye un nuevo cursor antes de la primera casilla. */
+        public Cursor() {
+            indice = -1;
+        }
+
+        /* Avanza a la siguiente casilla ocupada. */
+        @Override public boolean siguiente() {
+            while (++indice < posiciones.length)
+                if (posiciones[indice] != 0)
+                    return true;
+            return false;
+        }
+
+        /* Regresa la llave de la casilla actual. */
+        @Override public String llave() {
+            return decodifica(posiciones[indice]);
+        }
+
+        /* Regresa la cuenta de la casilla actual. */
+        @Override public int cuenta() {
+            return cuentas[indice];
+        }
+    }
+
+    /* Clase interna privada para iteradores de llaves. */
+    private class IteradorLlaves implements Iterator<String> {
+
+        /* El cursor auxiliar. */
+        private Cursor cursor;
+        /* Si el cursor ya está en la siguiente llave. */
+        private boolean listo;
+        /* Si quedan llaves. */
+        private boolean hay;
+
+        /* Construye un nuevo iterador. */
+        public IteradorLlaves() {
+            cursor = new Cursor();
+        }
+
+        /* Nos dice si hay una siguiente llave. */
+        @Override public boolean hasNext() {
+            if (!listo) {
+                hay = cursor.siguiente();
+                listo = true;
+            }
+            return hay;
+        }
+
+        /* Regresa la siguiente llave. */
+        @Override public String next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            listo = false;
+            return cursor.llave();
+        }
+    }
+
+    /** Máxima carga permitida por el contador. */
+    public static final double MAXIMA_CARGA = 0.6;
+
+    /* Capacidad mínima; decidida arbitrariamente a 2^6. */
+    private static final int MINIMA_CAPACIDAD = 64;
+
+    /* Capacidad máxima; los arreglos no crecen más allá de 2^30 casillas. */
+    private static final int MAXIMA_CAPACIDAD = 1 << 30;
+
+    /* Tamaño máximo de la arena. */
+    private static final int MAXIMA_ARENA = Integer.MAX_VALUE - 8;
+
+    /* La semilla de la dispersión, compartida por todos los contadores. */
+    private static final int SEMILLA = new SecureRandom().nextInt();
+
+    /* Las posiciones de las llaves en la arena; una casilla vacía tiene 0. */
+    private int[] posiciones;
+    /* La arena con los bytes de todas las llaves; el byte 0 no se usa, para
+     * que ninguna llave empiece en la posición 0. */
+    private byte[] arena;
+    /* Cuántos bytes de la arena están ocupados. */
+    private int ocupados;
+    /* Dónde empieza la última llave escrita en la arena. */
+    private int ultima;
+    /* Las dispersiones de las llaves. */
+    private int[] dispersiones;
+    /* Las cuentas de las llaves. */
+    private int[] cuentas;
+    /* Número de llaves. */
+    private int elementos;
+    /* Suma de todas las cuentas. */
+    private long total;
+
+    /**
+     * Construye un contador con una capacidad inicial predeterminada.
+     */
+    public ContadorPalabras() {
+        this(MINIMA_CAPACIDAD);
+    }
+
+    /**
+     * Construye un contador para un número esperado de palabras distintas. El
+     * contador no crece mientras no se rebase ese número. La capacidad se
+     * limita a la máxima que pueden tener los arreglos.
+     * @param capacidad el número esperado de palabras distintas.
+     */
+    public ContadorPalabras(int capacidad) {
+        int c = MINIMA_CAPACIDAD;
+        while (c < MAXIMA_CAPACIDAD && c * MAXIMA_CARGA <= capacidad)
+            c *= 2;
+        posiciones = new int[c];
+        dispersiones = new int[c];
+        cuentas = new int[c];
+        arena = new byte[(int)Math.min(8L * c, MAXIMA_ARENA)];
+        ocupados = 1;
+    }
+
+    /* Dispersa una palabra igual que se dispersan sus caracteres en
+     * incrementa(char[], int, int). */
+    private static int dispersa(String palabra) {
+        int h = SEMILLA;
+        for (int k = 0; k < palabra.length(); k++)
+            h = Dispersores.mezclaMurmur3(h, palabra.charAt(k));
+        return Dispersores.terminaMurmur3(h, palabra.length());
+    }
+
+    /* Regresa cuántos bytes ocupa un carácter en la arena. */
+    private static int bytes(char c) {
+        return c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+    }
+
+    /* Regresa cuántos bytes ocupa una cadena en la arena. */
+    private static int bytes(CharSequence s) {
+        int n = 0;
+        for (int k = 0; k < s.length(); k++)
+            n += bytes(s.charAt(k));
+        return n;
+    }
+
+    /* Regresa la casilla de la llave, o la casilla vacía donde debería ir. */
+    private int casilla(String llave, int h) {
+        int mascara = posiciones.length - 1;
+        int i = h & mascara;
+        int n = -1;
+        while (posiciones[i] != 0) {
+            if (dispersiones[i] == h) {
+                if (n == -1)
+                    n = bytes(llave);
+                if (iguales(posiciones[i], llave, n))
+                    return i;
+            }
+            i = (i + 1) & mascara;
+        }
+        return i;
+    }
+
+    /**
+     * Incrementa en uno la cuenta de la palabra.
+     * @param palabra la palabra a contar.
+     * @return la nueva cuenta de la palabra.
+     * @throws IllegalArgumentException si la palabra es nula.
+     */
+    public int incrementa(String palabra) {
+        return incrementa(palabra, 1);
+    }
+
+    /**
+     * Incrementa la cuenta de la palabra. Si la palabra no estaba en el
+     * contador, se agrega con la cuenta recibida.
+     * @param palabra la palabra a contar.
+     * @param n cuánto incrementar la cuenta.
+     * @return la nueva cuenta de la palabra.
+     * @throws IllegalArgumentException si la palabra es nula.
+     */
+    @Override public int incrementa(String palabra, int n) {
+        if (palabra == null)
+            throw new IllegalArgumentException();
+        int h = dispersa(palabra);
+        int i = casilla(palabra, h);
+        total += n;
+        if (posiciones[i] != 0)
+            return cuentas[i] += n;
+        int p = reserva(bytes(palabra));
+        for (int k = 0; k < palabra.length(); k++)
+            p = codifica(palabra.charAt(k), p);
+        inserta(i, h, n);
+        return n;
+    }
+
+    /**
+     * Incrementa en uno la cuenta de la palabra formada por un rango de
+     * caracteres. Nunca se crea la cadena de la palabra: los caracteres se
+     * comparan directamente contra la arena, y se copian a ella la primera
+     * vez que aparece la palabra.
+     * @param buffer el arreglo con los caracteres de la palabra.
+     * @param inicio dónde empieza la palabra en el arreglo.
+     * @param longitud la longitud de la palabra.
+     * @return la nueva cuenta de la palabra.
+     */
+    @Override public int incrementa(char[] buffer, int inicio, int longitud) {
+        int h = SEMILLA;
+        int n = 0;
+        for (int k = inicio; k < inicio + longitud; k++) {
+            char c = buffer[k];
+            h = Dispersores.mezclaMurmur3(h, c);
+            n += bytes(c);
+        }
+        h = Dispersores.terminaMurmur3(h, longitud);
+
+        int mascara = posiciones.length - 1;
+        int i = h & mascara;
+        while (posiciones[i] != 0) {
+            if (dispersiones[i] == h &&
+                iguales(posiciones[i], buffer, inicio, longitud, n))
+                break;
+            i = (i + 1) & mascara;
+        }
+        total++;
+        if (posiciones[i] != 0)
+            return ++cuentas[i];
+        int p = reserva(n);
+        for (int k = inicio; k < inicio + longitud; k++)
+            p = codifica(buffer[k], p);
+        inserta(i, h, 1);
+        return 1;
+    }
+
+    /* Ocupa la casilla con la última llave de la arena, y crece los arreglos
+     * si rebasamos la carga máxima y todavía pueden crecer. Siempre queda
+     * una casilla vacía, para que el sondeo lineal termine. */
+    private void inserta(int i, int h, int n) {
+        if (elementos == posiciones.length - 1)
+            throw new IllegalStateException("No caben más llaves en el contador");
+        posiciones[i] = ultima;
+        dispersiones[i] = h;
+        cuentas[i] = n;
+        if (++elementos >= posiciones.length * MAXIMA_CARGA &&
+            posiciones.length < MAXIMA_CAPACIDAD)
+            crece();
+    }
+
+    /* Reserva espacio al final de la arena para una llave de n bytes, escribe
+     * su longitud, y regresa dónde deben ir sus bytes. */
+    private int reserva(int n) {
+        int necesarios = n + 5;
+        if (arena.length - ocupados < necesarios) {
+            if (MAXIMA_ARENA - ocupados < necesarios)
+                throw new IllegalStateException("No caben más llaves en la arena");
+            long c = Math.max((long)arena.length * 2, (long)ocupados + necesarios);
+            arena = Arrays.copyOf(arena, (int)Math.min(c, MAXIMA_ARENA));
+        }
+        ultima = ocupados;
+        int p = ocupados;
+        while (n >= 0x80) {
+            arena[p++] = (byte)(n | 0x80);
+            n >>>= 7;
+        }
+        arena[p++] = (byte)n;
+        ocupados = p + (necesarios - 5);
+        return p;
+    }
+
+    /* Escribe un carácter en la arena, y regresa la posición siguiente. */
+    private int codifica(char c, int p) {
+        if (c < 0x80) {
+            arena[p++] = (byte)c;
+        } else if (c < 0x800) {
+            arena[p++] = (byte)(0xC0 | (c >> 6));
+            arena[p++] = (byte)(0x80 | (c & 0x3F));
+        } else {
+            arena[p++] = (byte)(0xE0 | (c >> 12));
+            arena[p++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+            arena[p++] = (byte)(0x80 | (c & 0x3F));
+        }
+        return p;
+    }
+
+    /* Regresa la longitud en bytes de la llave en la posición. */
+    private int longitud(int p) {
+        int n = 0;
+        int corrimiento = 0;
+        byte b;
+        do {
+            b = arena[p++];
+            n |= (b & 0x7F) << corrimiento;
+            corrimiento += 7;
+        } while (b < 0);
+        return n;
+    }
+
+    /* Regresa dónde empiezan los bytes de la llave en la posición. */
+    private int datos(int p) {
+        while (arena[p] < 0)
+            p++;
+        return p + 1;
+    }
+
+    /* Nos dice si la llave en la posición, de n bytes, tiene los mismos
+     * caracteres que el rango. */
+    private boolean iguales(int p, char[] buffer, int inicio, int longitud,
+                            int n) {
+        if (longitud(p) != n)
+            return false;
+        p = datos(p);
+        for (int k = inicio; k < inicio + longitud; k++) {
+            char c = buffer[k];
+            if (!igual(c, p))
+                return false;
+            p += bytes(c);
+        }
+        return true;
+    }
+
+    /* Nos dice si la llave en la posición, de n bytes, tiene los mismos
+     * caracteres que la cadena. */
+    private boolean iguales(int p, String s, int n) {
+        if (longitud(p) != n)
+            return false;
+        p = datos(p);
+        for (int k = 0; k < s.length(); k++) {
+            char c = s.charAt(k);
+            if (!igual(c, p))
+                return false;
+            p += bytes(c);
+        }
+        return true;
+    }
+
+    /* Nos dice si el carácter está codificado en la posición de la arena. */
+    private boolean igual(char c, int p) {
+        if (c < 0x80)
+            return arena[p] == (byte)c;
+        if (c < 0x800)
+            return arena[p] == (byte)(0xC0 | (c >> 6)) &&
+                arena[p + 1] == (byte)(0x80 | (c & 0x3F));
+        return arena[p] == (byte)(0xE0 | (c >> 12)) &&
+            arena[p + 1] == (byte)(0x80 | ((c >> 6) & 0x3F)) &&
+            arena[p + 2] == (byte)(0x80 | (c & 0x3F));
+    }
+
+    /* Regresa la cadena de la llave en la posición. */
+    private String decodifica(int p) {
+        int n = longitud(p);
+        p = datos(p);
+        int fin = p + n;
+        char[] c = new char[n];
+        int k = 0;
+        while (p < fin) {
+            int b = arena[p] & 0xFF;
+            if (b < 0x80) {
+                c[k++] = (char)b;
+                p++;
+            } else if (b < 0xE0) {
+                c[k++] = (char)(((b & 0x1F) << 6) | (arena[p + 1] & 0x3F));
+                p += 2;
+            } else {
+                c[k++] = (char)(((b & 0x0F) << 12) |
+                                ((arena[p + 1] & 0x3F) << 6) |
+                                (arena[p + 2] & 0x3F));
+                p += 3;
+            }
+        }
+        return new String(c, 0, k);
+    }
+
+    /**
+     * Suma al contador las cuentas de otro contador. Las dispersiones
+     * guardadas del otro contador se reutilizan, así que ninguna palabra se
+     * vuelve a dispersar, y las llaves se comparan y copian byte por byte
+     * entre las arenas, sin decodificarlas.
+     * @param otro el contador cuyas cuentas queremos sumar.
+     * @throws IllegalArgumentException si el otro contador es nulo.
+     */
+    public void combina(ContadorPalabras otro) {
+        if (otro == null)
+            throw new IllegalArgumentException();
+        for (int j = 0; j < otro.posiciones.length; j++) {
+            if (otro.posiciones[j] == 0)
+                continue;
+            int h = otro.dispersiones[j];
+            int n = otro.cuentas[j];
+            int q = otro.datos(otro.posiciones[j]);
+            int m = otro.longitud(otro.posiciones[j]);
+            int mascara = posiciones.length - 1;
+            int i = h & mascara;
+            while (posiciones[i] != 0) {
+                if (dispersiones[i] == h && longitud(posiciones[i]) == m) {
+                    int p = datos(posiciones[i]);
+                    if (Arrays.equals(arena, p, p + m, otro.arena, q, q + m))
+                        break;
+                }
+                i = (i + 1) & mascara;
+            }
+            total += n;
+            if (posiciones[i] != 0) {
+                cuentas[i] += n;
+                continue;
+            }
+            int p = reserva(m);
+            System.arraycopy(otro.arena, q, arena, p, m);
+            inserta(i, h, n);
+        }
+    }
+
+    /* Duplica los arreglos y redistribuye las llaves con sus dispersiones
+     * guardadas. */
+    private void crece() {
+        int[] viejasPosiciones = posiciones;
+        int[] viejasDispersiones = dispersiones;
+        int[] viejasCuentas = cuentas;
+        posiciones = new int[viejasPosiciones.length * 2];
+        dispersiones = new int[posiciones.length];
+        cuentas = new int[posiciones.length];
+        int mascara = posiciones.length - 1;
+        for (int j = 0; j < viejasPosiciones.length; j++) {
+            if (viejasPosiciones[j] == 0)
+                continue;
+            int i = viejasDispersiones[j] & mascara;
+            while (posiciones[i] != 0)
+                i = (i + 1) & mascara;
+            posiciones[i] = viejasPosiciones[j];
+            dispersiones[i] = viejasDispersiones[j];
+            cuentas[i] = viejasCuentas[j];
+        }
+    }
+
+    /**
+     * Regresa la cuenta de la palabra.
+     * @param palabra la palabra de la que queremos su cuenta.
+     * @return la cuenta de la palabra, o 0 si no está en el contador.
+     */
+    @Override public int get(String palabra) {
+        if (palabra == null)
+            return 0;
+        int i = casilla(palabra, dispersa(palabra));
+        return posiciones[i] == 0 ? 0 : cuentas[i];
+    }
+
+    /**
+     * Nos dice si una palabra está en el contador.
+     * @param palabra la palabra que queremos ver si está en el contador.
+     * @return <code>true</code> si la palabra está en el contador,
+     *         <code>false</code> en otro caso.
+     */
+    public boolean contiene(String palabra) {
+        if (palabra == null)
+            return false;
+        return posiciones[casilla(palabra, dispersa(palabra))] != 0;
+    }
+
+    /**
+     * Regresa el número de palabras distintas en el contador.
+     * @return el número de palabras distintas en el contador.
+     */
+    @Override public int getElementos() {
+        return elementos;
+    }
+
+    /**
+     * Regresa la suma de las cuentas de todas las palabras.
+     * @return la suma de las cuentas de todas las palabras.
+     */
+    @Override public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Regresa cuántos bytes de la arena ocupan las llaves, incluyendo sus
+     * longitudes.
+     * @return cuántos bytes ocupan las llaves.
+     */
+    public long getBytesLlaves() {
+        return ocupados - 1;
+    }
+
+    /**
+     * Nos dice si el contador es vacío.
+     * @return <code>true</code> si el contador es vacío, <code>false</code>
+     *         en otro caso.
+     */
+    public boolean esVacia() {
+        return elementos == 0;
+    }
+
+    /**
+     * Limpia el contador, dejándolo vacío.
+     */
+    public void limpia() {
+        posiciones = new int[MINIMA_CAPACIDAD];
+        dispersiones = new int[MINIMA_CAPACIDAD];
+        cuentas = new int[MINIMA_CAPACIDAD];
+        arena = new byte[MINIMA_CAPACIDAD * 8];
+        ocupados = 1;
+        elementos = 0;
+        total = 0;
+    }
+
+    /**
+     * Regresa un cursor para recorrer las palabras del contador con sus
+     * cuentas. El contador se recorre sin ningún orden específico.
+     * @return un cursor para recorrer el contador.
+     */
+    @Override public CursorConteo cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Regresa un iterador para iterar las palabras del contador. El contador
+     * se itera sin ningún orden específico.
+     * @return un iterador para iterar las palabras del contador.
+     */
+    public Iterator<String> iteradorLlaves() {
+        return new IteradorLlaves();
+    }
+
+    /**
+     * Regresa una representación en cadena del contador.
+     * @return una representación en cadena del contador.
+     */
+    @Override public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        if (!esVacia())
+            sb.append(" ");
+        CursorConteo c = cursor();
+        while (c.siguiente())
+            sb.append("'").append(c.llave()).append("': '")
+              .append(c.cuenta()).append("', ");
+        return sb.append("}").toString();
+    }
+}
@@ -0,0 +1,292 @@
+package mx.unam.ciencias.edd;
+
+/**
+ * <p>Clase para contar las palabras de un archivo por su identificador en un
+ * {@link Vocabulario} compartido. Es una tabla con direccionamiento abierto
+ * de enteros a enteros: los identificadores y sus cuentas viven en dos
+ * arreglos paralelos, y la tabla no guarda ninguna cadena; las palabras sólo
+ * viven una vez, en el vocabulario.</p>
+ *
+ * <p>Una tabla de conteo sólo debe usarla un hilo a la vez, pero varias
+ * tablas pueden compartir el mismo vocabulario desde hilos distintos.</p>
+ */
+public class ConteoVocabulario implements TablaConteo {
+
+    /* Clase interna privada para cursores. */
+    private class Cursor implements CursorConteo {
+
+        /* La casilla actual. */
+        private int indice;
+
+        /* Construye un nuevo cursor antes de la primera casilla. */
+        public Cursor() {
+            indice = -1;
+        }
+
+        /* Avanza a la siguiente casilla ocupada. */
+        @Override public boolean siguiente() {
+            while (++indice < ids.length)
+                if (ids[indice] != 0)
+                    return true;
+            return false;
+        }
+
+        /* Regresa la palabra de la casilla actual. */
+        @Override public String llave() {
+            return vocabulario.palabra(ids[indice] - 1);
+        }
+
+        /* Regresa la cuenta de la casilla actual. */
+        @Override public int cuenta() {
+            return cuentas[indice];
+        }
+    }
+
+    /** Máxima carga permitida por la tabla. */
+    public static final double MAXIMA_CARGA = 0.6;
+
+    /* Capacidad mínima; decidida arbitrariamente a 2^6. */
+    private static final int MINIMA_CAPACIDAD = 64;
+
+    /* El vocabulario compartido. */
+    private Vocabulario vocabulario;
+    /* Los identificadores más uno; una casilla vacía tiene 0. */
+    private int[] ids;
+    /* Las cuentas de los identificadores. */
+    private int[] cuentas;
+    /* Número de identificadores. */
+    private int elementos;
+    /* Suma de todas las cuentas. */
+    private long total;
+
+    /**
+     * Construye una tabla de conteo vacía sobre un vocabulario.
+     * @param vocabulario el vocabulario compartido.
+     * @throws IllegalArgumentException si el vocabulario es nulo.
+     */
+    public ConteoVocabulario(Vocabulario vocabulario) {
+        if (vocabulario == null)
+            throw new IllegalArgumentException();
+        this.vocabulario = vocabulario;
+        ids = new int[MINIMA_CAPACIDAD];
+        cuentas = new int[MINIMA_CAPACIDAD];
+    }
+
+    /**
+     * Regresa el vocabulario de la tabla.
+     * @return el vocabulario de la tabla.
+     */
+    public Vocabulario getVocabulario() {
+        return vocabulario;
+    }
+
+    /* Mezcla los bits del identificador. */
+    private static int dispersa(int id) {
+        int h = id * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    /* Regresa la casilla del identificador, o la casilla vacía donde
+     * debería ir. */
+    private int casilla(int id) {
+        int mascara = ids.length - 1;
+        int i = dispersa(id) & mascara;
+        while (ids[i] != 0 && ids[i] != id + 1)
+            i = (i + 1) & mascara;
+        return i;
+    }
+
+    /**
+     * Incrementa la cuenta de un identificador. Si el identificador no
+     * estaba en la tabla, se agrega con la cuenta recibida.
+     * @param id el identificador a contar.
+     * @param n cuánto incrementar la cuenta.
+     * @return la nueva cuenta del identificador.
+     * @throws IllegalArgumentException si el identificador es negativo.
+     */
+    public int incrementaId(int id, int n) {
+        if (id < 0)
+            throw new IllegalArgumentException();
+        int i = casilla(id);
+        total += n;
+        if (ids[i] != 0)
+            return cuentas[i] += n;
+        ids[i] = id + 1;
+        cuentas[i] = n;
+        if (++elementos >= ids.length * MAXIMA_CARGA)
+            crece();
+        return n;
+    }
+
+    /* Duplica los arreglos y redistribuye los identificadores. */
+    private void crece() {
+        int[] viejosIds = ids;
+        int[] viejasCuentas = cuentas;
+        ids = new int[viejosIds.length * 2];
+        cuentas = new int[ids.length];
+        for (int j = 0; j < viejosIds.length; j++) {
+            if (viejosIds[j] == 0)
+                continue;
+            int i = casilla(viejosIds[j] - 1);
+            ids[i] = viejosIds[j];
+            cuentas[i] = viejasCuentas[j];
+        }
+    }
+
+    /**
+     * Incrementa la cuenta de la palabra, agregándola al vocabulario si no
+     * estaba.
+     * @param palabra la palabra a contar.
+     * @param n cuánto incrementar la cuenta.
+     * @return la nueva cuenta de la palabra.
+     * @throws IllegalArgumentException si la palabra es nula.
+     */
+    @Override public int incrementa(String palabra, int n) {
+        return incrementaId(vocabulario.id(palabra), n);
+    }
+
+    /**
+     * Incrementa en uno la cuenta de la palabra formada por un rango de
+     * caracteres, agregándola al vocabulario si no estaba.
+     * @param buffer el arreglo con los caracteres de la palabra.
+     * @param inicio dónde empieza la palabra en el arreglo.
+     * @param longitud la longitud de la palabra.
+     * @return la nueva cuenta de la palabra.
+     */
+    @Override public int incrementa(char[] buffer, int inicio, int longitud) {
+        return incrementaId(vocabulario.id(buffer, inicio, longitud), 1);
+    }
+
+    /**
+     * Regresa la cuenta de un identificador.
+     * @param id el identificador.
+     * @return la cuenta del identificador, o 0 si no está en la tabla.
+     */
+    public int getId(int id) {
+        if (id < 0)
+            return 0;
+        int i = casilla(id);
+        return ids[i] == 0 ? 0 : cuentas[i];
+    }
+
+    /**
+     * Nos dice si un identificador está en la tabla.
+     * @param id el identificador.
+     * @return <code>true</code> si el identificador está en la tabla,
+     *         <code>false</code> en otro caso.
+     */
+    public boolean contieneId(int id) {
+        return id >= 0 && ids[casilla(id)] != 0;
+    }
+
+    /**
+     * Regresa la cuenta de la palabra. Nunca agrega la palabra al
+     * vocabulario.
+     * @param palabra la palabra de la que queremos su cuenta.
+     * @return la cuenta de la palabra, o 0 si no está en la tabla.
+     */
+    @Override public int get(String palabra) {
+        return getId(vocabulario.busca(palabra));
+    }
+
+    /**
+     * Regresa los identificadores de la tabla, sin ningún orden específico.
+     * @return un arreglo nuevo con los identificadores de la tabla.
+     */
+    public int[] ids() {
+        int[] r = new int[elementos];
+        int k = 0;
+        for (int i = 0; i < ids.length; i++)
+            if (ids[i] != 0)
+                r[k++] = ids[i] - 1;
+        return r;
+    }
+
+    /**
+     * Regresa cuántos identificadores tiene esta tabla en común con otra
+     * tabla del mismo vocabulario. Recorre la tabla más chica y busca sus
+     * identificadores en la más grande, sin comparar ninguna cadena.
+     * @param otra la otra tabla.
+     * @return cuántos identificadores tienen en común.
+     * @throws IllegalArgumentException si la otra tabla es nula o usa otro
+     *         vocabulario.
+     */
+    public int comunes(ConteoVocabulario otra) {
+        if (otra == null || otra.vocabulario != vocabulario)
+            throw new IllegalArgumentException();
+        ConteoVocabulario chica = this, grande = otra;
+        if (otra.elementos < elementos) {
+            chica = otra;
+            grande = this;
+        }
+        int comunes = 0;
+        for (int i = 0; i < chica.ids.length; i++)
+            if (chica.ids[i] != 0 && grande.contieneId(chica.ids[i] - 1))
+                comunes++;
+        return comunes;
+    }
+
+    /**
+     * Regresa una copia de la tabla, sobre el mismo vocabulario. La copia
+     * sólo duplica los arreglos de identificadores y cuentas.
+     * @return una copia de la tabla.
+     */
+    public ConteoVocabulario copia() {
+        ConteoVocabulario c = new ConteoVocabulario(vocabulario);
+        c.ids = ids.clone();
+        c.cuentas = cuentas.clone();
+        c.elementos = elementos;
+        c.total = total;
+        return c;
+    }
+
+    /**
+     * Suma a la tabla las cuentas de otra tabla del mismo vocabulario. Sólo
+     * se mueven identificadores y cuentas; ninguna palabra se vuelve a
+     * buscar.
+     * @param otra la tabla cuyas cuentas queremos sumar.
+     * @throws IllegalArgumentException si la otra tabla es nula o usa otro
+     *         vocabulario.
+     */
+    public void combina(ConteoVocabulario otra) {
+        if (otra == null || otra.vocabulario != vocabulario)
+            throw new IllegalArgumentException();
+        for (int j = 0; j < otra.ids.length; j++)
+            if (otra.ids[j] != 0)
+                incrementaId(otra.ids[j] - 1, otra.cuentas[j]);
+    }
+
+    /**
+     * Regresa el número de palabras distintas en la tabla.
+     * @return el número de palabras distintas en la tabla.
+     */
+    @Override public int getElementos() {
+        return elementos;
+    }
+
+    /**
+     * Regresa la suma de las cuentas de todas las palabras.
+     * @return la suma de las cuentas de todas las palabras.
+     */
+    @Override public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Nos dice si la tabla es vacía.
+     * @return <code>true</code> si la tabla es vacía, <code>false</code> en
+     *         otro caso.
+     */
+    public boolean esVacia() {
+        return elementos == 0;
+    }
+
+    /**
+     * Regresa un cursor para recorrer las palabras de la tabla con sus
+     * cuentas. La tabla se recorre sin ningún orden específico.
+     * @return un cursor para recorrer la tabla.
+     */
+    @Override public CursorConteo cursor() {
+        return new Cursor();
+    }
+}
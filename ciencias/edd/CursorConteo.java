@@ -0,0 +1,28 @@
+package mx.unam.ciencias.edd;
+
+/**
+ * Interfaz para cursores de conteos. Un cursor recorre las palabras de un
+ * conteo junto con su número de apariciones, sin crear objetos por entrada; el
+ * mismo cursor se reutiliza para todas las entradas.
+ */
+public interface CursorConteo {
+
+    /**
+     * Mueve el cursor a la siguiente entrada.
+     * @return <code>true</code> si hay una siguiente entrada,
+     *         <code>false</code> si ya se recorrieron todas.
+     */
+    public boolean siguiente();
+
+    /**
+     * Regresa la palabra de la entrada actual.
+     * @return la palabra de la entrada actual.
+     */
+    public String llave();
+
+    /**
+     * Regresa el número de apariciones de la entrada actual.
+     * @return el número de apariciones de la entrada actual.
+     */
+    public int cuenta();
+}
@@ -0,0 +1,28 @@
+package mx.unam.ciencias.edd;
+
+/**
+ * Interfaz para cursores de diccionarios. Un cursor recorre las entradas de
+ * un diccionario, con su llave y su valor juntos, sin volver a buscar cada
+ * llave; el mismo cursor se reutiliza para todas las entradas.
+ */
+public interface CursorDiccionario<K, V> {
+
+    /**
+     * Mueve el cursor a la siguiente entrada.
+     * @return <code>true</code> si hay una siguiente entrada,
+     *         <code>false</code> si ya se recorrieron todas.
+     */
+    public boolean siguiente();
+
+    /**
+     * Regresa la llave de la entrada actual.
+     * @return la llave de la entrada actual.
+     */
+    public K llave();
+
+    /**
+     * Regresa el valor de la entrada actual.
+     * @return el valor de la entrada actual.
+     */
+    public V valor();
+}
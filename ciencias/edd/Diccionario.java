@@ -1,54 +1,93 @@
 package mx.unam.ciencias.edd;
 
 import java.lang.reflect.Array;
+import java.util.AbstractMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
- * Clase para diccionarios (<em>hash tables</em>). Un diccionario generaliza el
- * concepto de arreglo, mapeando un conjunto de <em>llaves</em> a una colección
- * de <em>valores</em>.
+ * <p>Clase para diccionarios (<em>hash tables</em>). Un diccionario generaliza
+ * el concepto de arreglo, mapeando un conjunto de <em>llaves</em> a una
+ * colección de <em>valores</em>.</p>
+ *
+ * <p>Las entradas que caen en la misma casilla se guardan en una lista; si la
+ * lista rebasa {@link #UMBRAL_ARBOL} entradas y todas sus llaves son
+ * comparables y de la misma clase, la casilla se convierte en un {@link
+ * ArbolRojinegro} ordenado por dispersión y llave, de forma que aun si
+ * alguien fabrica llaves que caigan todas en la misma casilla, buscar en ella
+ * cuesta O(log n). Para esto el orden natural de las llaves debe ser
+ * consistente con <code>equals</code>. La casilla vuelve a ser una lista si
+ * se queda con {@link #UMBRAL_LISTA} entradas o menos.</p>
  */
 public class Diccionario<K, V> implements Iterable<V> {
 
-    /* Clase interna privada para entradas. */
-    private class Entrada {
+    /* Clase interna privada para entradas. Las entradas se ordenan por su
+     * dispersión y luego por su llave, que en ese caso debe ser comparable;
+     * sólo se comparan entradas en casillas convertidas en árboles. */
+    private class Entrada implements Comparable<Entrada> {
 
         /* La llave. */
         public K llave;
         /* El valor. */
         public V valor;
+        /* La dispersión de la llave. */
+        public int dispersion;
 
         /* Construye una nueva entrada. */
-        public Entrada(K llave, V valor) {
+        public Entrada(K llave, V valor, int dispersion) {
             this.llave = llave;
             this.valor = valor;
+            this.dispersion = dispersion;
+        }
+
+        /* Compara la entrada con otra por dispersión y llave. */
+        @Override public int compareTo(Entrada e) {
+            return compara(dispersion, llave, e);
         }
     }
 
     /* Clase interna privada para iteradores. */
     private class Iterador {
 
+        /* En qué arreglo estamos. */
+        private Coleccion<Entrada>[] tabla;
         /* En qué lista estamos. */
         private int indice;
         /* Iterador auxiliar. */
         private Iterator<Entrada> iterador;
 
-        /* Construye un nuevo iterador, auxiliándose de las listas del
-         * diccionario. */
+        /* Construye un nuevo iterador, auxiliándose de las casillas del
+         * diccionario. Si hay una migración en curso, primero recorre las
+         * casillas que siguen en el arreglo viejo. */
         public Iterador() {
-          Lista<Entrada> e = null;
-          for(int i = 0; i < entradas.length; i++){
-            if(entradas[i] != null){
-              indice = i;
-              e = entradas[i];
-              break;
+            tabla = viejas != null ? viejas : entradas;
+            indice = -1;
+            avanza();
+        }
+
+        /* Mueve el iterador auxiliar a la siguiente casilla no vacía. */
+        private void avanza() {
+            iterador = null;
+            while (true) {
+                while (++indice < tabla.length) {
+                    if (tabla[indice] != null) {
+                        iterador = tabla[indice].iterator();
+                        return;
+                    }
+                }
+                if (tabla == entradas)
+                    return;
+                tabla = entradas;
+                indice = -1;
             }
-           }
-          if(e != null)
-            this.iterador = e.iterator();
-          else
-            this.iterador = null;
         }
 
         /* Nos dice si hay una siguiente entrada. */
@@ -59,16 +98,8 @@ public class Diccionario<K, V> implements Iterable<V> {
         /* Regresa la siguiente entrada. */
         public Entrada siguiente() {
           Entrada e = iterador.next();
-          if(!iterador.hasNext()){
-              iterador = null;
-              for(int i = indice + 1; i < entradas.length; i++){
-                if(entradas[i] != null){
-                    indice = i;
-                    iterador = entradas[i].iterator();
-                    break;
-                }
-              }
-          }
+          if(!iterador.hasNext())
+              avanza();
           return e;
         }
     }
@@ -93,25 +124,204 @@ public class Diccionario<K, V> implements Iterable<V> {
         }
     }
 
+    /* Clase interna privada para cursores. */
+    private class Cursor implements CursorDiccionario<K, V> {
+
+        /* El iterador auxiliar. */
+        private Iterador iterador;
+        /* La entrada actual. */
+        private Entrada actual;
+
+        /* Construye un nuevo cursor antes de la primera entrada. */
+        public Cursor() {
+            iterador = new Iterador();
+        }
+
+        /* Avanza a la siguiente entrada. */
+        @Override public boolean siguiente() {
+            if (!iterador.hasNext()) {
+                actual = null;
+                return false;
+            }
+            actual = iterador.siguiente();
+            return true;
+        }
+
+        /* Regresa la llave de la entrada actual. */
+        @Override public K llave() {
+            return actual.llave;
+        }
+
+        /* Regresa el valor de la entrada actual. */
+        @Override public V valor() {
+            return actual.valor;
+        }
+    }
+
+    /* Clase interna privada para spliterators. Recorre un rango de casillas;
+     * si hay una migración en curso, las casillas que siguen en el arreglo
+     * viejo van antes que las del actual. Se divide partiendo el rango de
+     * casillas a la mitad. */
+    private class Divisor<T> implements Spliterator<T> {
+
+        /* Las casillas pendientes del arreglo viejo, o null. */
+        private Coleccion<Entrada>[] viejo;
+        /* Dónde empiezan las casillas pendientes del arreglo viejo. */
+        private int desde;
+        /* El arreglo actual. */
+        private Coleccion<Entrada>[] actual;
+        /* La siguiente casilla del rango. */
+        private int indice;
+        /* La casilla siguiente a la última del rango. */
+        private int fin;
+        /* El número estimado de elementos en el rango. */
+        private long estimado;
+        /* Si el número estimado de elementos es exacto. */
+        private boolean exacto;
+        /* El iterador de la casilla actual, o null. */
+        private Iterator<Entrada> iterador;
+        /* La función que obtiene el elemento de una entrada. */
+        private Function<Entrada, T> funcion;
+        /* Las características del spliterator. */
+        private int caracteristicas;
+
+        /* Construye un spliterator para todo el diccionario. */
+        public Divisor(Function<Entrada, T> funcion, int caracteristicas) {
+            viejo = viejas;
+            desde = migradas;
+            actual = entradas;
+            fin = (viejo == null ? 0 : viejo.length - desde) + actual.length;
+            estimado = elementos;
+            exacto = true;
+            this.funcion = funcion;
+            this.caracteristicas = caracteristicas;
+        }
+
+        /* Construye un spliterator para un rango de casillas de otro. */
+        private Divisor(Divisor<T> otro, int indice, int fin, long estimado) {
+            viejo = otro.viejo;
+            desde = otro.desde;
+            actual = otro.actual;
+            this.indice = indice;
+            this.fin = fin;
+            this.estimado = estimado;
+            funcion = otro.funcion;
+            caracteristicas = otro.caracteristicas;
+        }
+
+        /* Regresa la casilla en un índice del rango. */
+        private Coleccion<Entrada> casilla(int i) {
+            if(viejo != null){
+                if(i < viejo.length - desde)
+                    return viejo[desde + i];
+                i -= viejo.length - desde;
+            }
+            return actual[i];
+        }
+
+        /* Realiza la acción sobre el siguiente elemento, si lo hay. */
+        @Override public boolean tryAdvance(Consumer<? super T> accion) {
+            while(true){
+                if(iterador != null){
+                    if(iterador.hasNext()){
+                        accion.accept(funcion.apply(iterador.next()));
+                        return true;
+                    }
+                    iterador = null;
+                }
+                if(indice >= fin)
+                    return false;
+                Coleccion<Entrada> c = casilla(indice++);
+                if(c != null)
+                    iterador = c.iterator();
+            }
+        }
+
+        /* Realiza la acción sobre todos los elementos restantes. */
+        @Override public void forEachRemaining(Consumer<? super T> accion) {
+            if(iterador != null)
+                while(iterador.hasNext())
+                    accion.accept(funcion.apply(iterador.next()));
+            iterador = null;
+            while(indice < fin){
+                Coleccion<Entrada> c = casilla(indice++);
+                if(c != null)
+                    for(Entrada e:c)
+                        accion.accept(funcion.apply(e));
+            }
+        }
+
+        /* Parte el rango de casillas a la mitad, y regresa la primera. */
+        @Override public Spliterator<T> trySplit() {
+            int mitad = (indice + fin) >>> 1;
+            if(iterador != null || mitad <= indice)
+                return null;
+            estimado >>>= 1;
+            exacto = false;
+            Divisor<T> prefijo = new Divisor<T>(this, indice, mitad, estimado);
+            indice = mitad;
+            return prefijo;
+        }
+
+        /* Regresa el número estimado de elementos restantes. */
+        @Override public long estimateSize() {
+            return estimado;
+        }
+
+        /* Regresa las características del spliterator. */
+        @Override public int characteristics() {
+            return caracteristicas | Spliterator.NONNULL |
+                (exacto ? Spliterator.SIZED : 0);
+        }
+    }
+
     /** Máxima carga permitida por el diccionario. */
     public static final double MAXIMA_CARGA = 0.72;
 
     /* Capacidad mínima; decidida arbitrariamente a 2^6. */
     private static final int MINIMA_CAPACIDAD = 64;
 
+    /** Número de entradas en una casilla a partir del cual se convierte en
+     *  árbol. */
+    public static final int UMBRAL_ARBOL = 8;
+
+    /** Número de entradas en una casilla con árbol a partir del cual vuelve a
+     *  ser lista. */
+    public static final int UMBRAL_LISTA = 6;
+
+    /** Cada cuántas inserciones se guarda la carga en el historial. */
+    public static final int MUESTREO_CARGA = 64;
+
+    /* Cuántas listas del arreglo viejo se migran en cada operación que
+     * modifica al diccionario, cuando crece de forma incremental. */
+    private static final int MIGRACION_POR_OPERACION = 8;
+
     /* Dispersor. */
     private Dispersor<K> dispersor;
-    /* Nuestro diccionario. */
-    private Lista<Entrada>[] entradas;
+    /* Nuestro diccionario; cada casilla es una lista o un árbol rojinegro. */
+    private Coleccion<Entrada>[] entradas;
     /* Número de valores. */
     private int elementos;
+    /* Si el diccionario crece de forma incremental. */
+    private boolean incremental;
+    /* El arreglo anterior mientras hay una migración en curso; null si no
+     * la hay. */
+    private Coleccion<Entrada>[] viejas;
+    /* Cuántas listas del arreglo viejo ya se migraron. */
+    private int migradas;
+    /* Cuántas veces ha crecido el arreglo. */
+    private int crecimientos;
+    /* Cuántas inserciones ha habido desde que se creó o limpió. */
+    private int inserciones;
+    /* La carga del diccionario cada MUESTREO_CARGA inserciones. */
+    private Lista<Double> historialCarga;
 
     /* Truco para crear un arreglo genérico. Es necesario hacerlo así por cómo
        Java implementa sus genéricos; de otra forma obtenemos advertencias del
        compilador. */
     @SuppressWarnings("unchecked")
-    private Lista<Entrada>[] nuevoArreglo(int n) {
-        return (Lista<Entrada>[])Array.newInstance(Lista.class, n);
+    private Coleccion<Entrada>[] nuevoArreglo(int n) {
+        return (Coleccion<Entrada>[])Array.newInstance(Coleccion.class, n);
     }
 
     /**
@@ -124,7 +334,8 @@ public class Diccionario<K, V> implements Iterable<V> {
 
     /**
      * Construye un diccionario con una capacidad inicial definida por el
-     * usuario, y un dispersor predeterminado.
+     * usuario, y un dispersor predeterminado. La capacidad es el número
+     * esperado de elementos: el diccionario no crece mientras no se rebase.
      * @param capacidad la capacidad a utilizar.
      */
     public Diccionario(int capacidad) {
@@ -147,7 +358,24 @@ public class Diccionario<K, V> implements Iterable<V> {
      * @param dispersor el dispersor a utilizar.
      */
     public Diccionario(int capacidad, Dispersor<K> dispersor) {
+        this(capacidad, dispersor, false);
+    }
+
+    /**
+     * Construye un diccionario con una capacidad inicial y un método de
+     * dispersor definidos por el usuario, que puede crecer de forma
+     * incremental. Un diccionario incremental no redistribuye todas sus
+     * entradas de golpe al rebasar la carga máxima: conserva el arreglo viejo
+     * y migra unas cuantas listas en cada operación que lo modifica, de forma
+     * que ninguna operación individual paga el costo completo de crecer.
+     * @param capacidad el número esperado de elementos del diccionario.
+     * @param dispersor el dispersor a utilizar.
+     * @param incremental si el diccionario debe crecer de forma incremental.
+     */
+    public Diccionario(int capacidad, Dispersor<K> dispersor,
+                       boolean incremental) {
         this.dispersor = dispersor;
+        this.incremental = incremental;
         if(capacidad < MINIMA_CAPACIDAD){
           capacidad = MINIMA_CAPACIDAD;
         }
@@ -157,6 +385,7 @@ public class Diccionario<K, V> implements Iterable<V> {
         }
         entradas = nuevoArreglo(c);
         elementos = 0;
+        historialCarga = new Lista<Double>();
     }
 
     /**
@@ -171,48 +400,223 @@ public class Diccionario<K, V> implements Iterable<V> {
         if(llave == null || valor == null)
             throw new IllegalArgumentException();
 
-        int i = dispersor.dispersa(llave) & mask();
+        migra();
+        int h = dispersor.dispersa(llave);
+        Entrada e = busca(llave, h);
+        if(e != null)
+            e.valor = valor;
+        else
+            inserta(new Entrada(llave, valor, h));
+    }
+
+    /**
+     * Combina el valor recibido con el que ya tiene asociado la llave,
+     * usando la función proporcionada. Si la llave no está en el diccionario,
+     * se agrega con el valor recibido. La llave se dispersa una sola vez, por
+     * lo que sirve para contar: <code>combina(llave, 1, Integer::sum)</code>.
+     * @param llave la llave del valor a combinar.
+     * @param valor el valor a combinar, o a agregar si la llave no está.
+     * @param funcion la función que recibe el valor anterior y el recibido, y
+     *        regresa el nuevo valor.
+     * @return el nuevo valor asociado a la llave.
+     * @throws IllegalArgumentException si la llave, el valor o la función son
+     *         nulos, o si la función regresa <code>null</code>.
+     */
+    public V combina(K llave, V valor,
+                     BiFunction<? super V, ? super V, ? extends V> funcion) {
+        if(llave == null || valor == null || funcion == null)
+            throw new IllegalArgumentException();
+
+        migra();
+        int h = dispersor.dispersa(llave);
+        Entrada e = busca(llave, h);
+        if(e == null){
+            inserta(new Entrada(llave, valor, h));
+            return valor;
+        }
+        V nuevo = funcion.apply(e.valor, valor);
+        if(nuevo == null)
+            throw new IllegalArgumentException();
+        e.valor = nuevo;
+        return nuevo;
+    }
 
-        if(entradas[i] == null){
+    /**
+     * Regresa el valor asociado a la llave; si la llave no está en el
+     * diccionario, calcula el valor con la función recibida y lo agrega.
+     * @param llave la llave para buscar el valor.
+     * @param funcion la función que calcula el valor a partir de la llave.
+     * @return el valor asociado a la llave.
+     * @throws IllegalArgumentException si la llave o la función son nulas, o
+     *         si la función regresa <code>null</code>.
+     */
+    public V calculaSiAusente(K llave, Function<? super K, ? extends V> funcion) {
+        if(llave == null || funcion == null)
+            throw new IllegalArgumentException();
 
-          Lista<Entrada> e = new Lista<>();
-          e.agrega(new Entrada(llave, valor));
-          entradas[i] = e;
-          elementos++;
+        migra();
+        int h = dispersor.dispersa(llave);
+        Entrada e = busca(llave, h);
+        if(e != null)
+            return e.valor;
+        V valor = funcion.apply(llave);
+        if(valor == null)
+            throw new IllegalArgumentException();
+        inserta(new Entrada(llave, valor, h));
+        return valor;
+    }
 
-        }else{
+    /* Agrega una entrada nueva en la casilla que le corresponde, y crece el
+     * arreglo si rebasamos la carga máxima. */
+    private void inserta(Entrada e) {
+        Coleccion<Entrada>[] t = tabla(e.dispersion);
+        agregaEnCasilla(t, e.dispersion & (t.length - 1), e);
+        elementos++;
+        if(++inserciones % MUESTREO_CARGA == 0)
+            historialCarga.agrega(carga());
 
-            boolean lista = false;
-            for(Entrada e:entradas[i]){
-                if(lista)
-                    break;
-                if(e.llave.equals(llave)){
-                    lista = true;
-                    e.valor = valor;
-                }
-            }
-            if(!lista){
-                entradas[i].agrega(new Entrada(llave,valor));
-                elementos++;
+        if(carga() >= MAXIMA_CARGA)
+            crece();
+    }
+
+    /* Duplica el arreglo de entradas. Si el diccionario es incremental sólo
+     * guarda el arreglo viejo para migrarlo poco a poco; si no, redistribuye
+     * todas las entradas. */
+    private void crece() {
+        while(viejas != null)
+            migra();
+        crecimientos++;
+        Coleccion<Entrada>[] anteriores = entradas;
+        entradas = nuevoArreglo(anteriores.length * 2);
+        if(incremental){
+            viejas = anteriores;
+            migradas = 0;
+            return;
+        }
+        for(int w = 0; w < anteriores.length; w++)
+            if(anteriores[w] != null)
+                mueve(anteriores[w]);
+    }
+
+    /* Migra un número acotado de listas del arreglo viejo al actual. */
+    private void migra() {
+        if(viejas == null)
+            return;
+        int fin = Math.min(migradas + MIGRACION_POR_OPERACION, viejas.length);
+        while(migradas < fin){
+            if(viejas[migradas] != null){
+                mueve(viejas[migradas]);
+                viejas[migradas] = null;
             }
+            migradas++;
         }
+        if(migradas == viejas.length)
+            viejas = null;
+    }
 
-        if(carga() >= MAXIMA_CARGA){
+    /* Mueve las entradas de la casilla al arreglo actual, usando sus
+     * dispersiones guardadas. */
+    private void mueve(Coleccion<Entrada> casilla) {
+        int mascara = mask();
+        for(Entrada e:casilla)
+            agregaEnCasilla(entradas, e.dispersion & mascara, e);
+    }
 
-            Lista<Entrada> e = new Lista<>();
-            for(int w = 0; w < entradas.length; w++){
-                if(entradas[w] != null){
-                    for(Entrada j:entradas[w])
-                        e.agrega(j);
-                }
-            }
+    /* Agrega una entrada a una casilla del arreglo. Si la casilla es una
+     * lista y rebasa el umbral, la convierte en árbol cuando sus llaves lo
+     * permiten; si es un árbol y la llave no es de la misma clase que las
+     * del árbol, la casilla vuelve a ser lista. */
+    private void agregaEnCasilla(Coleccion<Entrada>[] t, int i, Entrada e) {
+        Coleccion<Entrada> casilla = t[i];
+        if(casilla == null)
+            casilla = t[i] = new Lista<>();
+        else if(casilla instanceof ArbolRojinegro &&
+                claseArbol(casilla) != e.llave.getClass())
+            casilla = t[i] = aLista(casilla);
+        casilla.agrega(e);
+        if(casilla instanceof Lista && casilla.getElementos() > UMBRAL_ARBOL &&
+           comparables(casilla))
+            t[i] = new ArbolRojinegro<Entrada>(casilla);
+    }
 
-            entradas = nuevoArreglo(entradas.length * 2);
-            elementos = 0;
+    /* Regresa una lista con las entradas de una casilla. */
+    private Lista<Entrada> aLista(Coleccion<Entrada> casilla) {
+        Lista<Entrada> lista = new Lista<>();
+        for(Entrada e:casilla)
+            lista.agrega(e);
+        return lista;
+    }
 
-            for(Entrada k:e)
-                agrega(k.llave, k.valor);
+    /* Nos dice si todas las llaves de la casilla son comparables y de la
+     * misma clase. */
+    private boolean comparables(Coleccion<Entrada> casilla) {
+        Class<?> clase = null;
+        for(Entrada e:casilla){
+            if(!(e.llave instanceof Comparable))
+                return false;
+            if(clase == null)
+                clase = e.llave.getClass();
+            else if(e.llave.getClass() != clase)
+                return false;
+        }
+        return true;
+    }
+
+    /* Regresa la clase de las llaves de una casilla con árbol. */
+    private Class<?> claseArbol(Coleccion<Entrada> casilla) {
+        return ((ArbolRojinegro<Entrada>)casilla).raiz().get().llave.getClass();
+    }
+
+    /* Compara una dispersión y una llave con las de una entrada. La llave
+     * debe ser comparable con la de la entrada. */
+    private int compara(int h, K llave, Entrada e) {
+        if(h != e.dispersion)
+            return h < e.dispersion ? -1 : 1;
+        @SuppressWarnings("unchecked") Comparable<Object> c =
+            (Comparable<Object>)llave;
+        return c.compareTo(e.llave);
+    }
 
+    /* Regresa el arreglo donde vive una llave con la dispersión recibida: el
+     * viejo si su casilla todavía no se ha migrado, o el actual. */
+    private Coleccion<Entrada>[] tabla(int h) {
+        if(viejas != null && (h & (viejas.length - 1)) >= migradas)
+            return viejas;
+        return entradas;
+    }
+
+    /* Regresa la entrada con la llave y la dispersión recibidas, o
+     * <code>null</code> si no está. */
+    private Entrada busca(K llave, int h) {
+        Coleccion<Entrada>[] t = tabla(h);
+        Coleccion<Entrada> casilla = t[h & (t.length - 1)];
+        if(casilla == null)
+            return null;
+        if(casilla instanceof ArbolRojinegro &&
+           claseArbol(casilla) == llave.getClass())
+            return buscaEnArbol((ArbolRojinegro<Entrada>)casilla, llave, h);
+        for(Entrada e:casilla)
+            if(e.dispersion == h && e.llave.equals(llave))
+                return e;
+        return null;
+    }
+
+    /* Busca la entrada con la llave y la dispersión recibidas bajando por el
+     * árbol de una casilla; regresa <code>null</code> si no está. */
+    private Entrada buscaEnArbol(ArbolRojinegro<Entrada> arbol, K llave,
+                                 int h) {
+        VerticeArbolBinario<Entrada> v = arbol.raiz();
+        while(true){
+            Entrada e = v.get();
+            int c = compara(h, llave, e);
+            if(c == 0)
+                return e.llave.equals(llave) ? e : null;
+            if(c < 0 && v.hayIzquierdo())
+                v = v.izquierdo();
+            else if(c > 0 && v.hayDerecho())
+                v = v.derecho();
+            else
+                return null;
         }
     }
 
@@ -233,15 +637,27 @@ public class Diccionario<K, V> implements Iterable<V> {
     public V get(K llave) {
       if(llave == null)
         throw new IllegalArgumentException();
-      if(!contiene(llave))
+
+      Entrada e = busca(llave, dispersor.dispersa(llave));
+      if(e == null)
         throw new NoSuchElementException();
+      return e.valor;
+    }
 
-      int i = dispersor.dispersa(llave) & mask();
-      for(Entrada e:entradas[i])
-        if(e.llave.equals(llave))
-            return e.valor;
+    /**
+     * Regresa el valor del diccionario asociado a la llave proporcionada, o
+     * el valor por omisión si la llave no está en el diccionario.
+     * @param llave la llave para buscar el valor.
+     * @param porOmision el valor a regresar si la llave no está.
+     * @return el valor correspondiente a la llave, o <code>porOmision</code>.
+     * @throws IllegalArgumentException si la llave es nula.
+     */
+    public V getOPorOmision(K llave, V porOmision) {
+      if(llave == null)
+        throw new IllegalArgumentException();
 
-      throw new NoSuchElementException();
+      Entrada e = busca(llave, dispersor.dispersa(llave));
+      return e == null ? porOmision : e.valor;
     }
 
     /**
@@ -254,13 +670,7 @@ public class Diccionario<K, V> implements Iterable<V> {
       if(llave == null)
         return false;
 
-        int i = dispersor.dispersa(llave) & mask();
-        if(entradas[i] == null)
-            return false;
-        for(Entrada e:entradas[i])
-            if(e.llave.equals(llave))
-                return true;
-        return false;
+        return busca(llave, dispersor.dispersa(llave)) != null;
     }
 
     /**
@@ -274,20 +684,22 @@ public class Diccionario<K, V> implements Iterable<V> {
 
         if(llave == null)
             throw new IllegalArgumentException();
-        if(!contiene(llave))
-            throw new NoSuchElementException();
 
-        int i = dispersor.dispersa(llave) & mask();
+        migra();
+        int h = dispersor.dispersa(llave);
+        Entrada e = busca(llave, h);
+        if(e == null)
+            throw new NoSuchElementException();
 
-        for (Entrada e : entradas[i]) {
-            if (e.llave.equals(llave)) {
-                entradas[i].elimina(e);
-                elementos--;
-                break;
-            }
-        }
-        if (entradas[i].getLongitud() == 0)
-         entradas[i] = null;
+        Coleccion<Entrada>[] t = tabla(h);
+        int i = h & (t.length - 1);
+        t[i].elimina(e);
+        elementos--;
+        if (t[i].getElementos() == 0)
+         t[i] = null;
+        else if (t[i] instanceof ArbolRojinegro &&
+                 t[i].getElementos() <= UMBRAL_LISTA)
+         t[i] = aLista(t[i]);
     }
 
     /**
@@ -295,10 +707,18 @@ public class Diccionario<K, V> implements Iterable<V> {
      * @return cuántas colisiones hay en el diccionario.
      */
     public int colisiones() {
+        int contador = colisiones(entradas);
+        if(viejas != null)
+            contador += colisiones(viejas);
+        return contador;
+    }
+
+    /* Cuenta las colisiones de un arreglo de casillas. */
+    private int colisiones(Coleccion<Entrada>[] t) {
         int contador = 0;
-        for (int i = 0; i < entradas.length; i++)
-            if(entradas[i] != null)
-                contador += entradas[i].getLongitud()-1;
+        for (int i = 0; i < t.length; i++)
+            if(t[i] != null)
+                contador += t[i].getElementos()-1;
         return contador;
     }
 
@@ -308,15 +728,178 @@ public class Diccionario<K, V> implements Iterable<V> {
      * @return el máximo número de colisiones para una misma llave.
      */
     public int colisionMaxima() {
+        int contador = colisionMaxima(entradas);
+        if(viejas != null)
+            contador = Math.max(contador, colisionMaxima(viejas));
+        return contador;
+    }
+
+    /* Regresa la colisión máxima de un arreglo de casillas. */
+    private int colisionMaxima(Coleccion<Entrada>[] t) {
         int contador = 0;
-        for(int i = 0; i < entradas.length; i++)
-            if(entradas[i] != null){
-                if(entradas[i].getLongitud()-1 > contador)
-                    contador = entradas[i].getLongitud() - 1;
+        for(int i = 0; i < t.length; i++)
+            if(t[i] != null){
+                if(t[i].getElementos()-1 > contador)
+                    contador = t[i].getElementos() - 1;
             }
         return contador;
     }
 
+    /**
+     * Regresa el histograma de las longitudes de las casillas: el elemento
+     * <em>k</em> del arreglo es el número de casillas con exactamente
+     * <em>k</em> entradas. Los elementos del histograma suman {@link
+     * #getCasillas}; si hay una migración en curso, las entradas que siguen
+     * en el arreglo viejo se cuentan en las casillas a las que van a migrar.
+     * @return el histograma de las longitudes de las casillas.
+     */
+    public int[] histogramaCasillas() {
+        int[] ocupacion = ocupacion();
+        int maxima = 0;
+        for(int k:ocupacion)
+            maxima = Math.max(maxima, k);
+        int[] histograma = new int[maxima + 1];
+        for(int k:ocupacion)
+            histograma[k]++;
+        return histograma;
+    }
+
+    /* Regresa cuántas entradas tiene cada casilla del arreglo actual. Las
+     * entradas de las casillas pendientes del arreglo viejo se cuentan en
+     * las casillas a las que van a migrar, así que todas las estadísticas
+     * usan las mismas casillas que carga(). */
+    private int[] ocupacion() {
+        int[] ocupacion = new int[entradas.length];
+        for(int i = 0; i < entradas.length; i++)
+            if(entradas[i] != null)
+                ocupacion[i] += entradas[i].getElementos();
+        if(viejas != null)
+            for(int i = migradas; i < viejas.length; i++)
+                if(viejas[i] != null)
+                    for(Entrada e:viejas[i])
+                        ocupacion[e.dispersion & (entradas.length - 1)]++;
+        return ocupacion;
+    }
+
+    /**
+     * Regresa el número de casillas del diccionario, el mismo con el que se
+     * calcula su {@link #carga}. Si hay una migración en curso, es el tamaño
+     * del arreglo nuevo: cada casilla pendiente del arreglo viejo se va a
+     * repartir entre dos de sus casillas.
+     * @return el número de casillas del diccionario.
+     */
+    public int getCasillas() {
+        return entradas.length;
+    }
+
+    /**
+     * Regresa cuántas veces ha crecido el arreglo del diccionario.
+     * @return cuántas veces ha crecido el arreglo del diccionario.
+     */
+    public int getCrecimientos() {
+        return crecimientos;
+    }
+
+    /**
+     * Regresa la carga que tenía el diccionario cada {@link
+     * #MUESTREO_CARGA} inserciones, en orden; junto con {@link #carga},
+     * describe cómo ha cambiado la carga con el tiempo, entre crecimientos y
+     * no sólo justo antes de ellos.
+     * @return la carga del diccionario cada {@link #MUESTREO_CARGA}
+     *         inserciones.
+     */
+    public double[] historialCarga() {
+        double[] historial = new double[historialCarga.getElementos()];
+        int i = 0;
+        for(double c:historialCarga)
+            historial[i++] = c;
+        return historial;
+    }
+
+    /**
+     * Regresa el número promedio de llaves que hay que comparar para
+     * encontrar una llave que está en el diccionario: en una lista, la
+     * posición de la entrada; en un árbol, su profundidad más uno.
+     * @return el promedio de comparaciones de una búsqueda exitosa, o 0 si
+     *         el diccionario es vacío.
+     */
+    public double sondeosExitosos() {
+        if(elementos == 0)
+            return 0;
+        long[] suma = new long[1];
+        for(Coleccion<Entrada> casilla:casillasOcupadas()){
+            if(casilla instanceof ArbolRojinegro){
+                ((ArbolRojinegro<Entrada>)casilla).dfsInOrder(
+                    v -> suma[0] += v.profundidad() + 1);
+            } else {
+                long k = casilla.getElementos();
+                suma[0] += k * (k + 1) / 2;
+            }
+        }
+        return (double)suma[0] / elementos;
+    }
+
+    /**
+     * Regresa el número promedio de llaves que hay que comparar para
+     * descubrir que una llave no está en el diccionario, suponiendo que la
+     * llave cae en cualquier casilla con la misma probabilidad: en una lista
+     * se comparan todas sus entradas; en un árbol, a lo más su altura más
+     * uno. Si hay una migración en curso, una llave que cae en una casilla
+     * todavía no migrada se busca en la casilla del arreglo viejo, que se
+     * alcanza desde dos de las {@link #getCasillas} casillas.
+     * @return el promedio de comparaciones de una búsqueda fallida.
+     */
+    public double sondeosFallidos() {
+        long suma = 0;
+        for(Coleccion<Entrada> casilla:entradas)
+            suma += comparaciones(casilla);
+        if(viejas != null)
+            for(int i = migradas; i < viejas.length; i++)
+                suma += 2 * comparaciones(viejas[i]);
+        return (double)suma / getCasillas();
+    }
+
+    /* Regresa cuántas llaves se comparan en una búsqueda fallida en una
+     * casilla. */
+    private long comparaciones(Coleccion<Entrada> casilla) {
+        if(casilla == null)
+            return 0;
+        if(casilla instanceof ArbolRojinegro)
+            return ((ArbolRojinegro<Entrada>)casilla).altura() + 1;
+        return casilla.getElementos();
+    }
+
+    /**
+     * Regresa la varianza del número de entradas por casilla. Con un
+     * dispersor uniforme, la varianza es cercana a la carga; una varianza
+     * mucho mayor indica que el dispersor amontona las llaves. Se calcula
+     * sobre las mismas casillas que {@link #histogramaCasillas}.
+     * @return la varianza del número de entradas por casilla.
+     */
+    public double varianzaOcupacion() {
+        int casillas = getCasillas();
+        double media = (double)elementos / casillas;
+        double suma = 0;
+        for(int k:ocupacion()){
+            double d = k - media;
+            suma += d * d;
+        }
+        return suma / casillas;
+    }
+
+    /* Regresa una lista con las casillas no vacías. */
+    private Lista<Coleccion<Entrada>> casillasOcupadas() {
+        Lista<Coleccion<Entrada>> casillas = new Lista<>();
+        for(Coleccion<Entrada> casilla:entradas)
+            if(casilla != null)
+                casillas.agrega(casilla);
+        if(viejas != null)
+            for(int i = migradas; i < viejas.length; i++)
+                if(viejas[i] != null)
+                    casillas.agrega(viejas[i]);
+        return casillas;
+    }
+
     /**
      * Nos dice la carga del diccionario.
      * @return la carga del diccionario.
@@ -346,8 +929,13 @@ public class Diccionario<K, V> implements Iterable<V> {
      * Limpia el diccionario de elementos, dejándolo vacío.
      */
     public void limpia() {
-        nuevoArreglo(MINIMA_CAPACIDAD);
+        entradas = nuevoArreglo(MINIMA_CAPACIDAD);
+        viejas = null;
+        migradas = 0;
         elementos = 0;
+        crecimientos = 0;
+        inserciones = 0;
+        historialCarga = new Lista<Double>();
     }
 
     /**
@@ -359,13 +947,11 @@ public class Diccionario<K, V> implements Iterable<V> {
         String s = "{";
         if(!esVacia())
             s += " ";
-        for(int i = 0; i < entradas.length; i++){
-            if(entradas[i] != null){
-                for(Entrada e:entradas[i]){
-                    s += "'" + e.llave + "'" + ": ";
-                    s += "'" + e.valor + "'" + ", ";
-                }
-            }
+        Iterador it = new Iterador();
+        while(it.hasNext()){
+            Entrada e = it.siguiente();
+            s += "'" + e.llave + "'" + ": ";
+            s += "'" + e.valor + "'" + ", ";
         }
         s += "}";
         return s;
@@ -385,17 +971,96 @@ public class Diccionario<K, V> implements Iterable<V> {
             (Diccionario<K, V>)o;
         if (elementos != d.elementos)
           return false;
-        for (int i = 0; i < entradas.length; i++) {
-            if (entradas[i] != null) {
-                for (Entrada e : entradas[i]) {
-                    if (!d.contiene(e.llave) || !d.get(e.llave).equals(get(e.llave)))
-                        return false;
-                }
-            }
+        Iterador it = new Iterador();
+        while (it.hasNext()) {
+            Entrada e = it.siguiente();
+            if (!d.contiene(e.llave) || !d.get(e.llave).equals(e.valor))
+                return false;
         }
         return true;
     }
 
+    /**
+     * Regresa un cursor para recorrer las entradas del diccionario, con su
+     * llave y su valor juntos. El diccionario se recorre sin ningún orden
+     * específico, y no debe modificarse mientras se recorre.
+     * @return un cursor para recorrer el diccionario.
+     */
+    public CursorDiccionario<K, V> cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Realiza una acción sobre la llave y el valor de cada entrada del
+     * diccionario, recorriendo directamente sus casillas. El diccionario se
+     * recorre sin ningún orden específico.
+     * @param accion la acción a realizar sobre cada llave y su valor.
+     * @throws IllegalArgumentException si la acción es nula.
+     */
+    public void forEach(BiConsumer<? super K, ? super V> accion) {
+        if(accion == null)
+            throw new IllegalArgumentException();
+        if(viejas != null)
+            for(int i = migradas; i < viejas.length; i++)
+                if(viejas[i] != null)
+                    for(Entrada e:viejas[i])
+                        accion.accept(e.llave, e.valor);
+        for(Coleccion<Entrada> casilla:entradas)
+            if(casilla != null)
+                for(Entrada e:casilla)
+                    accion.accept(e.llave, e.valor);
+    }
+
+    /**
+     * Regresa un {@link Spliterator} de los valores del diccionario, que se
+     * divide por rangos de casillas. El diccionario no debe modificarse
+     * mientras se recorre.
+     * @return un {@link Spliterator} de los valores del diccionario.
+     */
+    @Override public Spliterator<V> spliterator() {
+        return new Divisor<V>(e -> e.valor, 0);
+    }
+
+    /**
+     * Regresa un {@link Spliterator} de las llaves del diccionario, que se
+     * divide por rangos de casillas.
+     * @return un {@link Spliterator} de las llaves del diccionario.
+     */
+    public Spliterator<K> spliteratorLlaves() {
+        return new Divisor<K>(e -> e.llave, Spliterator.DISTINCT);
+    }
+
+    /**
+     * Regresa un flujo secuencial con los valores del diccionario.
+     * @return un flujo secuencial con los valores del diccionario.
+     */
+    public Stream<V> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Regresa un flujo, posiblemente paralelo, con los valores del
+     * diccionario.
+     * @return un flujo posiblemente paralelo con los valores del diccionario.
+     */
+    public Stream<V> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * Regresa un flujo, secuencial o paralelo, con las entradas del
+     * diccionario; cada entrada es una pareja inmutable con una llave y su
+     * valor.
+     * @param paralelo si el flujo debe ser paralelo.
+     * @return un flujo con las entradas del diccionario.
+     */
+    public Stream<Map.Entry<K, V>> streamEntradas(boolean paralelo) {
+        Spliterator<Map.Entry<K, V>> s = new Divisor<Map.Entry<K, V>>(
+            e -> new AbstractMap.SimpleImmutableEntry<K, V>(e.llave, e.valor),
+            Spliterator.DISTINCT);
+        return StreamSupport.stream(s, paralelo);
+    }
+
     /**
      * Regresa un iterador para iterar las llaves del diccionario. El
      * diccionario se itera sin ningún orden específico.
@@ -0,0 +1,484 @@
+package mx.unam.ciencias.edd;
+
+import java.lang.reflect.Array;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * <p>Clase para diccionarios que pueden usar varios hilos a la vez. Las
+ * casillas se reparten en <em>segmentos</em>, y cada segmento es un pequeño
+ * diccionario con su propio candado: dos hilos sólo compiten si modifican
+ * llaves del mismo segmento. Las lecturas no usan candados.</p>
+ *
+ * <p>Cada segmento crece por separado al rebasar {@link #MAXIMA_CARGA}. Al
+ * crecer no modifica el arreglo viejo: construye uno nuevo y lo publica al
+ * final, así que las lecturas concurrentes nunca se bloquean, y ven el
+ * arreglo viejo completo o el nuevo completo.</p>
+ *
+ * <p>Los métodos {@link #combina} y {@link #calculaSiAusente} son atómicos,
+ * por lo que varios hilos pueden contar en el mismo diccionario con
+ * <code>combina(llave, 1, Integer::sum)</code> sin perder cuentas. Los
+ * recorridos no lanzan excepciones si el diccionario se modifica mientras se
+ * recorre, pero pueden o no ver las modificaciones.</p>
+ */
+public class DiccionarioConcurrente<K, V> {
+
+    /* Clase interna privada para nodos. La llave y la dispersión no cambian;
+     * el valor es volátil para que las lecturas sin candado vean la última
+     * escritura. El siguiente nodo tampoco cambia, así que eliminar copia los
+     * nodos anteriores de la casilla. */
+    private static class Nodo<K, V> {
+
+        /* La llave. */
+        public final K llave;
+        /* La dispersión de la llave. */
+        public final int dispersion;
+        /* El valor. */
+        public volatile V valor;
+        /* El siguiente nodo de la casilla. */
+        public final Nodo<K, V> siguiente;
+
+        /* Construye un nuevo nodo. */
+        public Nodo(K llave, int dispersion, V valor, Nodo<K, V> siguiente) {
+            this.llave = llave;
+            this.dispersion = dispersion;
+            this.valor = valor;
+            this.siguiente = siguiente;
+        }
+    }
+
+    /* Clase interna privada para segmentos. Las modificaciones se hacen con
+     * el candado del segmento; el arreglo es volátil para publicarlo al
+     * crecer. */
+    @SuppressWarnings("serial")
+    private static class Segmento<K, V> extends ReentrantLock {
+
+        /* Las casillas del segmento. */
+        public volatile AtomicReferenceArray<Nodo<K, V>> tabla;
+        /* Número de valores del segmento. */
+        public volatile int elementos;
+
+        /* Construye un segmento con el número de casillas recibido. */
+        public Segmento(int casillas) {
+            tabla = new AtomicReferenceArray<Nodo<K, V>>(casillas);
+        }
+
+        /* Busca el nodo de una llave en una casilla, sin candado. */
+        public Nodo<K, V> busca(K llave, int h) {
+            AtomicReferenceArray<Nodo<K, V>> t = tabla;
+            Nodo<K, V> n = t.get(h & (t.length() - 1));
+            while(n != null){
+                if(n.dispersion == h && n.llave.equals(llave))
+                    return n;
+                n = n.siguiente;
+            }
+            return null;
+        }
+
+        /* Agrega un nodo nuevo al inicio de su casilla, y crece el arreglo si
+         * rebasamos la carga máxima. Debe llamarse con el candado. */
+        public void inserta(K llave, int h, V valor) {
+            AtomicReferenceArray<Nodo<K, V>> t = tabla;
+            int i = h & (t.length() - 1);
+            t.set(i, new Nodo<K, V>(llave, h, valor, t.get(i)));
+            elementos++;
+            if((double)elementos / t.length() >= MAXIMA_CARGA &&
+               t.length() < MAXIMA_CAPACIDAD)
+                crece();
+        }
+
+        /* Duplica el arreglo del segmento. Los nodos que quedan al final de
+         * una casilla y van todos a la misma casilla nueva se reutilizan; los
+         * demás se copian, para no tocar el arreglo viejo. */
+        private void crece() {
+            AtomicReferenceArray<Nodo<K, V>> viejo = tabla;
+            int n = viejo.length() * 2;
+            AtomicReferenceArray<Nodo<K, V>> nuevo =
+                new AtomicReferenceArray<Nodo<K, V>>(n);
+            for(int i = 0; i < viejo.length(); i++){
+                Nodo<K, V> cabeza = viejo.get(i);
+                if(cabeza == null)
+                    continue;
+                Nodo<K, V> cola = cabeza;
+                int j = cabeza.dispersion & (n - 1);
+                for(Nodo<K, V> m = cabeza.siguiente; m != null; m = m.siguiente){
+                    int k = m.dispersion & (n - 1);
+                    if(k != j){
+                        cola = m;
+                        j = k;
+                    }
+                }
+                nuevo.set(j, cola);
+                for(Nodo<K, V> m = cabeza; m != cola; m = m.siguiente){
+                    int k = m.dispersion & (n - 1);
+                    nuevo.set(k, new Nodo<K, V>(m.llave, m.dispersion, m.valor,
+                                                nuevo.get(k)));
+                }
+            }
+            tabla = nuevo;
+        }
+
+        /* Elimina el nodo de una llave, copiando los nodos anteriores de su
+         * casilla. Debe llamarse con el candado. */
+        public boolean elimina(K llave, int h) {
+            AtomicReferenceArray<Nodo<K, V>> t = tabla;
+            int i = h & (t.length() - 1);
+            Nodo<K, V> cabeza = t.get(i);
+            Nodo<K, V> n = cabeza;
+            while(n != null && (n.dispersion != h || !n.llave.equals(llave)))
+                n = n.siguiente;
+            if(n == null)
+                return false;
+            Nodo<K, V> resto = n.siguiente;
+            for(Nodo<K, V> m = cabeza; m != n; m = m.siguiente)
+                resto = new Nodo<K, V>(m.llave, m.dispersion, m.valor, resto);
+            t.set(i, resto);
+            elementos--;
+            return true;
+        }
+    }
+
+    /** Máxima carga permitida por cada segmento. */
+    public static final double MAXIMA_CARGA = 0.72;
+
+    /** Número de segmentos por omisión. */
+    public static final int SEGMENTOS = 16;
+
+    /* Capacidad mínima de cada segmento. */
+    private static final int MINIMA_CAPACIDAD = 4;
+
+    /* Capacidad máxima de cada segmento; el segmento deja de crecer al
+     * llegar a ella. */
+    private static final int MAXIMA_CAPACIDAD = 1 << 30;
+
+    /* Dispersor. */
+    private Dispersor<K> dispersor;
+    /* Los segmentos. */
+    private Segmento<K, V>[] segmentos;
+    /* Cuántos bits recorrer la dispersión para obtener el segmento. */
+    private int desplazamiento;
+
+    /**
+     * Construye un diccionario concurrente con una capacidad inicial, un
+     * dispersor y un número de segmentos predeterminados.
+     */
+    public DiccionarioConcurrente() {
+        this(0, (K llave) -> llave.hashCode(), SEGMENTOS);
+    }
+
+    /**
+     * Construye un diccionario concurrente con un dispersor definido por el
+     * usuario.
+     * @param dispersor el dispersor a utilizar.
+     */
+    public DiccionarioConcurrente(Dispersor<K> dispersor) {
+        this(0, dispersor, SEGMENTOS);
+    }
+
+    /**
+     * Construye un diccionario concurrente con una capacidad inicial, un
+     * dispersor y un número de segmentos definidos por el usuario. El número
+     * de segmentos se redondea a la siguiente potencia de dos, y debería ser
+     * mayor que el número de hilos que modifican el diccionario a la vez.
+     * @param capacidad el número esperado de elementos del diccionario.
+     * @param dispersor el dispersor a utilizar.
+     * @param segmentos el número de segmentos.
+     * @throws IllegalArgumentException si el dispersor es nulo, o si el
+     *         número de segmentos no es positivo.
+     */
+    public DiccionarioConcurrente(int capacidad, Dispersor<K> dispersor,
+                                  int segmentos) {
+        if(dispersor == null || segmentos < 1)
+            throw new IllegalArgumentException();
+        this.dispersor = dispersor;
+        int s = 1;
+        int bits = 0;
+        while(s < segmentos && s < (1 << 16)){
+            s *= 2;
+            bits++;
+        }
+        desplazamiento = 32 - bits;
+        int c = MINIMA_CAPACIDAD;
+        while((long)c * s < 2L * capacidad && c < MAXIMA_CAPACIDAD)
+            c *= 2;
+        this.segmentos = nuevoArreglo(s);
+        for(int i = 0; i < s; i++)
+            this.segmentos[i] = new Segmento<K, V>(c);
+    }
+
+    /* Truco para crear un arreglo genérico. Es necesario hacerlo así por cómo
+       Java implementa sus genéricos; de otra forma obtenemos advertencias del
+       compilador. */
+    @SuppressWarnings("unchecked")
+    private Segmento<K, V>[] nuevoArreglo(int n) {
+        return (Segmento<K, V>[])Array.newInstance(Segmento.class, n);
+    }
+
+    /* Dispersa la llave y revuelve sus bits, para que tanto los bits altos
+     * (que eligen el segmento) como los bajos (que eligen la casilla)
+     * dependan de toda la dispersión. */
+    private int dispersa(K llave) {
+        int h = dispersor.dispersa(llave) * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    /* Regresa el segmento de una dispersión. */
+    private Segmento<K, V> segmento(int h) {
+        return desplazamiento == 32 ? segmentos[0] : segmentos[h >>> desplazamiento];
+    }
+
+    /**
+     * Agrega un nuevo valor al diccionario, usando la llave proporcionada. Si
+     * la llave ya había sido utilizada antes para agregar un valor, el
+     * diccionario reemplaza ese valor con el recibido aquí.
+     * @param llave la llave para agregar el valor.
+     * @param valor el valor a agregar.
+     * @throws IllegalArgumentException si la llave o el valor son nulos.
+     */
+    public void agrega(K llave, V valor) {
+        if(llave == null || valor == null)
+            throw new IllegalArgumentException();
+
+        int h = dispersa(llave);
+        Segmento<K, V> s = segmento(h);
+        s.lock();
+        try {
+            Nodo<K, V> n = s.busca(llave, h);
+            if(n != null)
+                n.valor = valor;
+            else
+                s.inserta(llave, h, valor);
+        } finally {
+            s.unlock();
+        }
+    }
+
+    /**
+     * Combina atómicamente el valor recibido con el que ya tiene asociado la
+     * llave, usando la función proporcionada. Si la llave no está en el
+     * diccionario, se agrega con el valor recibido. La función se llama con
+     * el candado del segmento, así que debe ser rápida y no debe usar el
+     * diccionario.
+     * @param llave la llave del valor a combinar.
+     * @param valor el valor a combinar, o a agregar si la llave no está.
+     * @param funcion la función que recibe el valor anterior y el recibido, y
+     *        regresa el nuevo valor.
+     * @return el nuevo valor asociado a la llave.
+     * @throws IllegalArgumentException si la llave, el valor o la función son
+     *         nulos, o si la función regresa <code>null</code>.
+     */
+    public V combina(K llave, V valor,
+                     BiFunction<? super V, ? super V, ? extends V> funcion) {
+        if(llave == null || valor == null || funcion == null)
+            throw new IllegalArgumentException();
+
+        int h = dispersa(llave);
+        Segmento<K, V> s = segmento(h);
+        s.lock();
+        try {
+            Nodo<K, V> n = s.busca(llave, h);
+            if(n == null){
+                s.inserta(llave, h, valor);
+                return valor;
+            }
+            V nuevo = funcion.apply(n.valor, valor);
+            if(nuevo == null)
+                throw new IllegalArgumentException();
+            n.valor = nuevo;
+            return nuevo;
+        } finally {
+            s.unlock();
+        }
+    }
+
+    /**
+     * Regresa el valor asociado a la llave; si la llave no está en el
+     * diccionario, calcula atómicamente el valor con la función recibida y lo
+     * agrega. Si la llave ya está, no se toma ningún candado.
+     * @param llave la llave para buscar el valor.
+     * @param funcion la función que calcula el valor a partir de la llave.
+     * @return el valor asociado a la llave.
+     * @throws IllegalArgumentException si la llave o la función son nulas, o
+     *         si la función regresa <code>null</code>.
+     */
+    public V calculaSiAusente(K llave, Function<? super K, ? extends V> funcion) {
+        if(llave == null || funcion == null)
+            throw new IllegalArgumentException();
+
+        int h = dispersa(llave);
+        Segmento<K, V> s = segmento(h);
+        Nodo<K, V> n = s.busca(llave, h);
+        if(n != null)
+            return n.valor;
+        s.lock();
+        try {
+            n = s.busca(llave, h);
+            if(n != null)
+                return n.valor;
+            V valor = funcion.apply(llave);
+            if(valor == null)
+                throw new IllegalArgumentException();
+            s.inserta(llave, h, valor);
+            return valor;
+        } finally {
+            s.unlock();
+        }
+    }
+
+    /**
+     * Regresa el valor del diccionario asociado a la llave proporcionada.
+     * @param llave la llave para buscar el valor.
+     * @return el valor correspondiente a la llave.
+     * @throws IllegalArgumentException si la llave es nula.
+     * @throws NoSuchElementException si la llave no está en el diccionario.
+     */
+    public V get(K llave) {
+        if(llave == null)
+            throw new IllegalArgumentException();
+
+        int h = dispersa(llave);
+        Nodo<K, V> n = segmento(h).busca(llave, h);
+        if(n == null)
+            throw new NoSuchElementException();
+        return n.valor;
+    }
+
+    /**
+     * Regresa el valor del diccionario asociado a la llave proporcionada, o
+     * el valor por omisión si la llave no está en el diccionario.
+     * @param llave la llave para buscar el valor.
+     * @param porOmision el valor a regresar si la llave no está.
+     * @return el valor correspondiente a la llave, o <code>porOmision</code>.
+     * @throws IllegalArgumentException si la llave es nula.
+     */
+    public V getOPorOmision(K llave, V porOmision) {
+        if(llave == null)
+            throw new IllegalArgumentException();
+
+        int h = dispersa(llave);
+        Nodo<K, V> n = segmento(h).busca(llave, h);
+        return n == null ? porOmision : n.valor;
+    }
+
+    /**
+     * Nos dice si una llave se encuentra en el diccionario.
+     * @param llave la llave que queremos ver si está en el diccionario.
+     * @return <tt>true</tt> si la llave está en el diccionario,
+     *         <tt>false</tt> en otro caso.
+     */
+    public boolean contiene(K llave) {
+        if(llave == null)
+            return false;
+
+        int h = dispersa(llave);
+        return segmento(h).busca(llave, h) != null;
+    }
+
+    /**
+     * Elimina el valor del diccionario asociado a la llave proporcionada.
+     * @param llave la llave para buscar el valor a eliminar.
+     * @throws IllegalArgumentException si la llave es nula.
+     * @throws NoSuchElementException si la llave no se encuentra en
+     *         el diccionario.
+     */
+    public void elimina(K llave) {
+        if(llave == null)
+            throw new IllegalArgumentException();
+
+        int h = dispersa(llave);
+        Segmento<K, V> s = segmento(h);
+        boolean eliminado;
+        s.lock();
+        try {
+            eliminado = s.elimina(llave, h);
+        } finally {
+            s.unlock();
+        }
+        if(!eliminado)
+            throw new NoSuchElementException();
+    }
+
+    /**
+     * Regresa el número de entradas en el diccionario. Si otros hilos lo
+     * están modificando, el número es sólo aproximado.
+     * @return el número de entradas en el diccionario.
+     */
+    public int getElementos() {
+        int elementos = 0;
+        for(Segmento<K, V> s:segmentos)
+            elementos += s.elementos;
+        return elementos;
+    }
+
+    /**
+     * Nos dice si el diccionario es vacío.
+     * @return <code>true</code> si el diccionario es vacío, <code>false</code>
+     *         en otro caso.
+     */
+    public boolean esVacia() {
+        for(Segmento<K, V> s:segmentos)
+            if(s.elementos > 0)
+                return false;
+        return true;
+    }
+
+    /**
+     * Nos dice cuántos segmentos tiene el diccionario.
+     * @return el número de segmentos del diccionario.
+     */
+    public int getSegmentos() {
+        return segmentos.length;
+    }
+
+    /**
+     * Borra todos los elementos del diccionario. Cada segmento se limpia con
+     * su candado, pero no todos a la vez.
+     */
+    public void limpia() {
+        for(Segmento<K, V> s:segmentos){
+            s.lock();
+            try {
+                s.tabla = new AtomicReferenceArray<Nodo<K, V>>(MINIMA_CAPACIDAD);
+                s.elementos = 0;
+            } finally {
+                s.unlock();
+            }
+        }
+    }
+
+    /**
+     * Realiza una acción sobre la llave y el valor de cada entrada del
+     * diccionario, sin tomar candados. El diccionario se recorre sin ningún
+     * orden específico; las entradas que se agregan o eliminan durante el
+     * recorrido pueden o no visitarse.
+     * @param accion la acción a realizar sobre cada llave y su valor.
+     * @throws IllegalArgumentException si la acción es nula.
+     */
+    public void forEach(BiConsumer<? super K, ? super V> accion) {
+        if(accion == null)
+            throw new IllegalArgumentException();
+        for(Segmento<K, V> s:segmentos){
+            AtomicReferenceArray<Nodo<K, V>> t = s.tabla;
+            for(int i = 0; i < t.length(); i++)
+                for(Nodo<K, V> n = t.get(i); n != null; n = n.siguiente)
+                    accion.accept(n.llave, n.valor);
+        }
+    }
+
+    /**
+     * Regresa un diccionario secuencial con una copia de las entradas de este
+     * diccionario, con el dispersor recibido.
+     * @param dispersor el dispersor del diccionario secuencial.
+     * @return un diccionario con las entradas de este diccionario.
+     */
+    public Diccionario<K, V> aDiccionario(Dispersor<K> dispersor) {
+        Diccionario<K, V> d =
+            new Diccionario<K, V>(getElementos(), dispersor);
+        forEach((k, v) -> d.agrega(k, v));
+        return d;
+    }
+}
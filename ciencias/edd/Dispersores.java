@@ -1,22 +1,144 @@
 package mx.unam.ciencias.edd;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 /**
- * Clase para métodos estáticos con dispersores de bytes.
+ * <p>Clase para métodos estáticos con dispersores de bytes.</p>
+ *
+ * <p>Cada dispersor se puede usar con un arreglo completo, con un pedazo de
+ * un arreglo, con una región de un {@link ByteBuffer}, o directamente con una
+ * secuencia de caracteres; en este último caso se dispersa su codificación en
+ * UTF-8, que es la misma que regresa <code>getBytes()</code> cuando la
+ * codificación por omisión es UTF-8. Ninguna de las versiones crea arreglos
+ * por llamada: los caracteres y los búferes que no tienen un arreglo
+ * accesible se copian a un arreglo auxiliar que cada hilo reutiliza.</p>
+ *
+ * <p>Además de XOR, Bob Jenkins y Daniel J. Bernstein, la clase tiene
+ * MurmurHash3 (32 bits), xxHash (32 y 64 bits) y wyhash (la versión
+ * <em>final4</em>, de 64 bits); estos cuatro leen la llave en palabras de 4
+ * u 8 bytes en <em>little endian</em>, y regresan los mismos valores que sus
+ * implementaciones de referencia con semilla 0. Estos cuatro y el de Bob
+ * Jenkins también se pueden usar con una semilla arbitraria, para que quien
+ * controle las llaves no pueda predecir sus colisiones; XOR y Daniel J.
+ * Bernstein no admiten semilla, porque sus colisiones no dependen del valor
+ * inicial.</p>
  */
 public class Dispersores {
 
+    /* Arreglo auxiliar de cada hilo. */
+    private static final ThreadLocal<byte[]> AUXILIAR =
+        ThreadLocal.withInitial(() -> new byte[64]);
+
+    /* Vistas para leer enteros de 4 y 8 bytes en little endian. */
+    private static final VarHandle INT =
+        MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG =
+        MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /* Constantes de MurmurHash3. */
+    private static final int M3_C1 = 0xcc9e2d51;
+    private static final int M3_C2 = 0x1b873593;
+
+    /* Primos de xxHash32. */
+    private static final int X32_P1 = 0x9E3779B1;
+    private static final int X32_P2 = 0x85EBCA77;
+    private static final int X32_P3 = 0xC2B2AE3D;
+    private static final int X32_P4 = 0x27D4EB2F;
+    private static final int X32_P5 = 0x165667B1;
+
+    /* Primos de xxHash64. */
+    private static final long X64_P1 = 0x9E3779B185EBCA87L;
+    private static final long X64_P2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long X64_P3 = 0x165667B19E3779F9L;
+    private static final long X64_P4 = 0x85EBCA77C2B2AE63L;
+    private static final long X64_P5 = 0x27D4EB2F165667C5L;
+
+    /* Secreto por omisión de wyhash. */
+    private static final long WY_S0 = 0x2d358dccaa6c78a5L;
+    private static final long WY_S1 = 0x8bb84b93962eacc9L;
+    private static final long WY_S2 = 0x4b33a62ed433d4a3L;
+    private static final long WY_S3 = 0x4d5a2da51de1aa47L;
+
     /* Constructor privado para evitar instanciación. */
     private Dispersores() {}
 
+    /* Regresa el arreglo auxiliar del hilo, con al menos n bytes. */
+    private static byte[] auxiliar(int n) {
+      byte[] a = AUXILIAR.get();
+      if (a.length < n) {
+        a = new byte[Math.max(n, a.length * 2)];
+        AUXILIAR.set(a);
+      }
+      return a;
+    }
+
+    /* Copia la región [inicio, inicio+longitud) del búfer al arreglo
+     * auxiliar, sin mover su posición. */
+    private static byte[] copia(ByteBuffer b, int inicio, int longitud) {
+      byte[] a = auxiliar(longitud);
+      for (int i = 0; i < longitud; i++)
+        a[i] = b.get(inicio + i);
+      return a;
+    }
+
+    /* Codifica la secuencia en UTF-8 en el arreglo auxiliar, y regresa el
+     * número de bytes. Los sustitutos sin pareja se codifican como '?', igual
+     * que con getBytes(). Ningún carácter ocupa más de tres bytes (un par de
+     * sustitutos ocupa cuatro), así que el arreglo se pide de una vez. */
+    private static int codifica(CharSequence s) {
+      int n = s.length();
+      byte[] a = auxiliar(3 * n);
+      int j = 0;
+      for (int i = 0; i < n; i++) {
+        char c = s.charAt(i);
+        if (c < 0x80) {
+          a[j++] = (byte)c;
+          continue;
+        }
+        if (c < 0x800) {
+          a[j++] = (byte)(0xC0 | (c >> 6));
+          a[j++] = (byte)(0x80 | (c & 0x3F));
+        } else if (!Character.isSurrogate(c)) {
+          a[j++] = (byte)(0xE0 | (c >> 12));
+          a[j++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+          a[j++] = (byte)(0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && i + 1 < n &&
+                   Character.isLowSurrogate(s.charAt(i + 1))) {
+          int cp = Character.toCodePoint(c, s.charAt(++i));
+          a[j++] = (byte)(0xF0 | (cp >> 18));
+          a[j++] = (byte)(0x80 | ((cp >> 12) & 0x3F));
+          a[j++] = (byte)(0x80 | ((cp >> 6) & 0x3F));
+          a[j++] = (byte)(0x80 | (cp & 0x3F));
+        } else {
+          a[j++] = (byte)'?';
+        }
+      }
+      return j;
+    }
+
     /**
      * Función de dispersión XOR.
      * @param llave la llave a dispersar.
      * @return la dispersión de XOR de la llave.
      */
     public static int dispersaXOR(byte[] llave) {
+      return dispersaXOR(llave, 0, llave.length);
+    }
+
+    /**
+     * Función de dispersión XOR sobre un pedazo de un arreglo.
+     * @param llave el arreglo con la llave a dispersar.
+     * @param inicio dónde empieza la llave en el arreglo.
+     * @param longitud la longitud de la llave.
+     * @return la dispersión de XOR de la llave.
+     */
+    public static int dispersaXOR(byte[] llave, int inicio, int longitud) {
       int r = 0;
-      int n = 0;
-      int l = llave.length;
+      int n = inicio;
+      int l = longitud;
 
       while(l > 3) {
         r ^= combina(llave[n], llave[n+1], llave[n+2], llave[n+3]);
@@ -39,6 +161,32 @@ public class Dispersores {
       return r;
     }
 
+    /**
+     * Función de dispersión XOR sobre una región de un búfer. La posición y
+     * el límite del búfer no se modifican.
+     * @param llave el búfer con la llave a dispersar.
+     * @param inicio dónde empieza la llave en el búfer.
+     * @param longitud la longitud de la llave.
+     * @return la dispersión de XOR de la llave.
+     */
+    public static int dispersaXOR(ByteBuffer llave, int inicio, int longitud) {
+      if (llave.hasArray())
+        return dispersaXOR(llave.array(), llave.arrayOffset() + inicio,
+                           longitud);
+      return dispersaXOR(copia(llave, inicio, longitud), 0, longitud);
+    }
+
+    /**
+     * Función de dispersión XOR sobre la codificación en UTF-8 de una
+     * secuencia de caracteres.
+     * @param llave la llave a dispersar.
+     * @return la dispersión de XOR de la llave.
+     */
+    public static int dispersaXOR(CharSequence llave) {
+      int n = codifica(llave);
+      return dispersaXOR(AUXILIAR.get(), 0, n);
+    }
+
     /**
      *
      */
@@ -53,12 +201,38 @@ public class Dispersores {
      * @return la dispersión de Bob Jenkins de la llave.
      */
     public static int dispersaBJ(byte[] llave) {
+      return dispersaBJ(llave, 0, llave.length);
+    }
+
+    /**
+     * Función de dispersión de Bob Jenkins sobre un pedazo de un arreglo.
+     * @param llave el arreglo con la llave a dispersar.
+     * @param inicio dónde empieza la llave en el arreglo.
+     * @param longitud la longitud de la llave.
+     * @return la dispersión de Bob Jenkins de la llave.
+     */
+    public static int dispersaBJ(byte[] llave, int inicio, int longitud) {
+      return dispersaBJ(llave, inicio, longitud, 0xffffffff);
+    }
+
+    /**
+     * Función de dispersión de Bob Jenkins sobre un pedazo de un arreglo, con
+     * una semilla (el valor inicial de la función); la semilla por omisión es
+     * <code>0xffffffff</code>.
+     * @param llave el arreglo con la llave a dispersar.
+     * @param inicio dónde empieza la llave en el arreglo.
+     * @param longitud la longitud de la llave.
+     * @param semilla la semilla.
+     * @return la dispersión de Bob Jenkins de la llave.
+     */
+    public static int dispersaBJ(byte[] llave, int inicio, int longitud,
+                                 int semilla) {
       int a = 0x9e3779b9;
       int b = 0x9e3779b9;
-      int c = 0xffffffff;
-      int i = 0;
-      int available = llave.length;
-      int n = llave.length;
+      int c = semilla;
+      int i = inicio;
+      int available = longitud;
+      int n = longitud;
       while(available >= 12) {
           a += (
               (llave[i] & 0xFF) |
@@ -81,9 +255,16 @@ public class Dispersores {
               ((llave[i + 11] & 0xFF) << 24)
           );
 
-          // Mezcla
-          int[] r = mezcla(a, b, c);
-          a = r[0]; b = r[1]; c = r[2];
+          // Mezcla, en variables locales para no crear arreglos.
+          a -= b; a -= c; a ^= (c >>> 13);
+          b -= c; b -= a; b ^= (a << 8);
+          c -= a; c -= b; c ^= (b >>> 13);
+          a -= b; a -= c; a ^= (c >>> 12);
+          b -= c; b -= a; b ^= (a << 16);
+          c -= a; c -= b; c ^= (b >>> 5);
+          a -= b; a -= c; a ^= (c >>> 3);
+          b -= c; b -= a; b ^= (a << 10);
+          c -= a; c -= b; c ^= (b >>> 15);
           i += 12;
           available -= 12;
       }
@@ -113,16 +294,7 @@ public class Dispersores {
               a += (llave[i] & 0xFF);
       }
 
-      // Uso del método Mezcla.
-      int[] r = mezcla(a, b, c);
-      return r[2];
-    }
-
-    /**
-     *
-     */
-    private static int[] mezcla(int a, int b, int c) {
-      int[] r = new int[3];
+      // Mezcla final.
       a -= b; a -= c; a ^= (c >>> 13);
       b -= c; b -= a; b ^= (a << 8);
       c -= a; c -= b; c ^= (b >>> 13);
@@ -132,10 +304,45 @@ public class Dispersores {
       a -= b; a -= c; a ^= (c >>> 3);
       b -= c; b -= a; b ^= (a << 10);
       c -= a; c -= b; c ^= (b >>> 15);
-      r[0] = a;
-      r[1] = b;
-      r[2] = c;
-      return r;
+      return c;
+    }
+
+    /**
+     * Función de dispersión de Bob Jenkins sobre una región de un búfer. La
+     * posición y el límite del búfer no se modifican.
+     * @param llave el búfer con la llave a dispersar.
+     * @param inicio dónde empieza la llave en el búfer.
+     * @param longitud la longitud de la llave.
+     * @return la dispersión de Bob Jenkins de la llave.
+     */
+    public static int dispersaBJ(ByteBuffer llave, int inicio, int longitud) {
+      if (llave.hasArray())
+        return dispersaBJ(llave.array(), llave.arrayOffset() + inicio,
+                          longitud);
+      return dispersaBJ(copia(llave, inicio, longitud), 0, longitud);
+    }
+
+    /**
+     * Función de dispersión de Bob Jenkins sobre la codificación en UTF-8 de
+     * una secuencia de caracteres.
+     * @param llave la llave a dispersar.
+     * @return la dispersión de Bob Jenkins de la llave.
+     */
+    public static int dispersaBJ(CharSequence llave) {
+      int n = codifica(llave);
+      return dispersaBJ(AUXILIAR.get(), 0, n);
+    }
+
+    /**
+     * Función de dispersión de Bob Jenkins sobre la codificación en UTF-8 de
+     * una secuencia de caracteres, con una semilla.
+     * @param llave la llave a dispersar.
+     * @param semilla la semilla.
+     * @return la dispersión de Bob Jenkins de la llave.
+     */
+    public static int dispersaBJ(CharSequence llave, int semilla) {
+      int n = codifica(llave);
+      return dispersaBJ(AUXILIAR.get(), 0, n, semilla);
     }
 
     /**
@@ -144,9 +351,582 @@ public class Dispersores {
      * @return la dispersión de Daniel Bernstein de la llave.
      */
     public static int dispersaDJB(byte[] llave) {
+      return dispersaDJB(llave, 0, llave.length);
+    }
+
+    /**
+     * Función de dispersión Daniel J. Bernstein sobre un pedazo de un
+     * arreglo.
+     * @param llave el arreglo con la llave a dispersar.
+     * @param inicio dónde empieza la llave en el arreglo.
+     * @param longitud la longitud de la llave.
+     * @return la dispersión de Daniel Bernstein de la llave.
+     */
+    public static int dispersaDJB(byte[] llave, int inicio, int longitud) {
       int h = 5381;
-      for(int i = 0; i < llave.length; i++)
+      for(int i = inicio; i < inicio + longitud; i++)
         h += (h << 5) + (llave[i] & 0xFF);
       return h;
     }
+
+    /**
+     * Función de dispersión Daniel J. Bernstein sobre una región de un búfer.
+     * La posición y el límite del búfer no se modifican.
+     * @param llave el búfer con la llave a dispersar.
+     * @param inicio dónde empieza la llave en el búfer.
+     * @param longitud la longitud de la llave.
+     * @return la dispersión de Daniel Bernstein de la llave.
+     */
+    public static int dispersaDJB(ByteBuffer llave, int inicio, int longitud) {
+      int h = 5381;
+      for(int i = inicio; i < inicio + longitud; i++)
+        h += (h << 5) + (llave.get(i) & 0xFF);
+      return h;
+    }
+
+    /**
+     * Función de dispersión Daniel J. Bernstein sobre la codificación en
+     * UTF-8 de una secuencia de caracteres. Como la función consume los bytes
+     * uno por uno, no necesita el arreglo auxiliar.
+     * @param llave la llave a dispersar.
+     * @return la dispersión de Daniel Bernstein de la llave.
+     */
+    public static int dispersaDJB(CharSequence llave) {
+      int h = 5381;
+      int n = llave.length();
+      for (int i = 0; i < n; i++) {
+        char c = llave.charAt(i);
+        if (c < 0x80) {
+          h += (h << 5) + c;
+        } else if (c < 0x800) {
+          h += (h << 5) + (0xC0 | (c >> 6));
+          h += (h << 5) + (0x80 | (c & 0x3F));
+        } else if (!Character.isSurrogate(c)) {
+          h += (h << 5) + (0xE0 | (c >> 12));
+          h += (h << 5) + (0x80 | ((c >> 6) & 0x3F));
+          h += (h << 5) + (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && i + 1 < n &&
+                   Character.isLowSurrogate(llave.charAt(i + 1))) {
+          int cp = Character.toCodePoint(c, llave.charAt(++i));
+          h += (h << 5) + (0xF0 | (cp >> 18));
+          h += (h << 5) + (0x80 | ((cp >> 12) & 0x3F));
+          h += (h << 5) + (0x80 | ((cp >> 6) & 0x3F));
+          h += (h << 5) + (0x80 | (cp & 0x3F));
+        } else {
+          h += (h << 5) + '?';
+        }
+      }
+      return h;
+    }
+
+    /* Lee un entero de 4 bytes en little endian. */
+    private static int int32(byte[] b, int i) {
+      return (int)INT.get(b, i);
+    }
+
+    /* Lee un entero de 8 bytes en little endian. */
+    private static long int64(byte[] b, int i) {
+      return (long)LONG.get(b, i);
+    }
+
+    /**
+     * Función de dispersión MurmurHash3 de 32 bits, con semilla 0.
+     * @param llave la llave a dispersar.
+     * @return la dispersión MurmurHash3 de la llave.
+     */
+    public static int dispersaMurmur3(byte[] llave) {
+      return dispersaMurmur3(llave, 0, llave.length, 0);
+    }
+
+    /**
+     * Función de dispersión MurmurHash3 de 32 bits sobre un pedazo de un
+     * arreglo, con semilla 0.
+     * @param llave el arreglo con la llave a dispersar.
+     * @param inicio dónde empieza la llave en el arreglo.
+     * @param longitud la longitud de la llave.
+     * @return la dispersión MurmurHash3 de la llave.
+     */
+    public static int dispersaMurmur3(byte[] llave, int inicio, int longitud) {
+      return dispersaMurmur3(llave, inicio, longitud, 0);
+    }
+
+    /**
+     * Función de dispersión MurmurHash3 de 32 bits sobre una región de un
+     * búfer, con semilla 0. La posición y el límite del búfer no se
+     * modifican.
+     * @param llave el búfer con la llave a dispersar.
+     * @param inicio dónde empieza la llave en el búfer.
+     * @param longitud la longitud de la llave.
+     * @return la dispersión MurmurHash3 de la llave.
+     */
+    public static int dispersaMurmur3(ByteBuffer llave, int inicio, int longitud) {
+      if (llave.hasArray())
+        return dispersaMurmur3(llave.array(), llave.arrayOffset() + inicio, longitud, 0);
+      return dispersaMurmur3(copia(llave, inicio, longitud), 0, longitud, 0);
+    }
+
+    /**
+     * Función de dispersión MurmurHash3 de 32 bits sobre la codificación en
+     * UTF-8 de una secuencia de caracteres, con semilla 0.
+     * @param llave la llave a dispersar.
+     * @return la dispersión MurmurHash3 de la llave.
+     */
+    public static int dispersaMurmur3(CharSequence llave) {
+      int n = codifica(llave);
+      return dispersaMurmur3(AUXILIAR.get(), 0, n, 0);
+    }
+
+    /**
+     * Función de dispersión MurmurHash3 de 32 bits sobre la codificación en UTF-8 de
+     * una secuencia de caracteres, con una semilla.
+     * @param llave la llave a dispersar.
+     * @param semilla la semilla.
+     * @return la dispersión MurmurHash3 de la llave.
+     */
+    public static int dispersaMurmur3(CharSequence llave, int semilla) {
+      int n = codifica(llave);
+      return dispersaMurmur3(AUXILIAR.get(), 0, n, semilla);
+    }
+
+    /**
+     * Función de dispersión MurmurHash3 de 32 bits sobre un pedazo de un
+     * arreglo, con una semilla.
+     * @param llave el arreglo con la llave a dispersar.
+     * @param inicio dónde empieza la llave en el arreglo.
+     * @param longitud la longitud de la llave.
+     * @param semilla la semilla.
+     * @return la dispersión MurmurHash3 de la llave.
+     */
+    @SuppressWarnings("fallthrough")
+    public static int dispersaMurmur3(byte[] llave, int inicio, int longitud,
+                                      int semilla) {
+      int h = semilla;
+      int i = inicio;
+      int fin = inicio + (longitud & ~3);
+      for (; i < fin; i += 4)
+        h = mezclaMurmur3(h, int32(llave, i));
+      int k = 0;
+      switch (longitud & 3) {
+          case 3:
+              k ^= (llave[i + 2] & 0xFF) << 16;
+          case 2:
+              k ^= (llave[i + 1] & 0xFF) << 8;
+          case 1:
+              k ^= (llave[i] & 0xFF);
+              k *= M3_C1;
+              k = Integer.rotateLeft(k, 15);
+              k *= M3_C2;
+              h ^= k;
+      }
+      return terminaMurmur3(h, longitud);
+    }
+
+    /**
+     * Mezcla un bloque de 32 bits en una dispersión MurmurHash3 de 32 bits.
+     * Junto con {@link #terminaMurmur3}, sirve para dispersar llaves que no
+     * son bytes, como los caracteres de una palabra, un bloque a la vez; el
+     * valor inicial de la dispersión es la semilla.
+     * @param h la dispersión hasta ahora.
+     * @param k el bloque.
+     * @return la dispersión con el bloque mezclado.
+     */
+    public static int mezclaMurmur3(int h, int k) {
+      k *= M3_C1;
+      k = Integer.rotateLeft(k, 15);
+      k *= M3_C2;
+      h ^= k;
+      h = Integer.rotateLeft(h, 13);
+      return h * 5 + 0xe6546b64;
+    }
+
+    /**
+     * Termina una dispersión MurmurHash3 de 32 bits, para que cada bit del
+     * resultado dependa de todos los bloques.
+     * @param h la dispersión con todos los bloques mezclados.
+     * @param longitud la longitud de la llave.
+     * @return la dispersión terminada.
+     */
+    public static int terminaMurmur3(int h, int longitud) {
+      h ^= longitud;
+      h ^= h >>> 16;
+      h *= 0x85ebca6b;
+      h ^= h >>> 13;
+      h *= 0xc2b2ae35;
+      h ^= h >>> 16;
+      return h;
+    }
+
+    /**
+     * Función de dispersión xxHash de 32 bits, con semilla 0.
+     * @param llave la llave a dispersar.
+     * @return la dispersión xxHash32 de la llave.
+     */
+    public static int dispersaXXH32(byte[] llave) {
+      return dispersaXXH32(llave, 0, llave.length, 0);
+    }
+
+    /**
+     * Función de dispersión xxHash de 32 bits sobre un pedazo de un arreglo,
+     * con semilla 0.
+     * @param llave el arreglo con la llave a dispersar.
+     * @param inicio dónde empieza la llave en el arreglo.
+     * @param longitud la longitud de la llave.
+     * @return la dispersión xxHash32 de la llave.
+     */
+    public static int dispersaXXH32(byte[] llave, int inicio, int longitud) {
+      return dispersaXXH32(llave, inicio, longitud, 0);
+    }
+
+    /**
+     * Función de dispersión xxHash de 32 bits sobre una región de un búfer,
+     * con semilla 0. La posición y el límite del búfer no se modifican.
+     * @param llave el búfer con la llave a dispersar.
+     * @param inicio dónde empieza la llave en el búfer.
+     * @param longitud la longitud de la llave.
+     * @return la dispersión xxHash32 de la llave.
+     */
+    public static int dispersaXXH32(ByteBuffer llave, int inicio, int longitud) {
+      if (llave.hasArray())
+        return dispersaXXH32(llave.array(), llave.arrayOffset() + inicio, longitud, 0);
+      return dispersaXXH32(copia(llave, inicio, longitud), 0, longitud, 0);
+    }
+
+    /**
+     * Función de dispersión xxHash de 32 bits sobre la codificación en UTF-8
+     * de una secuencia de caracteres, con semilla 0.
+     * @param llave la llave a dispersar.
+     * @return la dispersión xxHash32 de la llave.
+     */
+    public static int dispersaXXH32(CharSequence llave) {
+      int n = codifica(llave);
+      return dispersaXXH32(AUXILIAR.get(), 0, n, 0);
+    }
+
+    /**
+     * Función de dispersión xxHash de 32 bits sobre la codificación en UTF-8 de
+     * una secuencia de caracteres, con una semilla.
+     * @param llave la llave a dispersar.
+     * @param semilla la semilla.
+     * @return la dispersión xxHash32 de la llave.
+     */
+    public static int dispersaXXH32(CharSequence llave, int semilla) {
+      int n = codifica(llave);
+      return dispersaXXH32(AUXILIAR.get(), 0, n, semilla);
+    }
+
+    /* Una ronda de xxHash32. */
+    private static int ronda32(int acumulador, int entrada) {
+      acumulador += entrada * X32_P2;
+      acumulador = Integer.rotateLeft(acumulador, 13);
+      return acumulador * X32_P1;
+    }
+
+    /**
+     * Función de dispersión xxHash de 32 bits sobre un pedazo de un arreglo,
+     * con una semilla.
+     * @param llave el arreglo con la llave a dispersar.
+     * @param inicio dónde empieza la llave en el arreglo.
+     * @param longitud la longitud de la llave.
+     * @param semilla la semilla.
+     * @return la dispersión xxHash32 de la llave.
+     */
+    public static int dispersaXXH32(byte[] llave, int inicio, int longitud,
+                                    int semilla) {
+      int i = inicio;
+      int fin = inicio + longitud;
+      int h;
+      if (longitud >= 16) {
+        int v1 = semilla + X32_P1 + X32_P2;
+        int v2 = semilla + X32_P2;
+        int v3 = semilla;
+        int v4 = semilla - X32_P1;
+        int limite = fin - 16;
+        do {
+          v1 = ronda32(v1, int32(llave, i));
+          v2 = ronda32(v2, int32(llave, i + 4));
+          v3 = ronda32(v3, int32(llave, i + 8));
+          v4 = ronda32(v4, int32(llave, i + 12));
+          i += 16;
+        } while (i <= limite);
+        h = Integer.rotateLeft(v1, 1) + Integer.rotateLeft(v2, 7) +
+          Integer.rotateLeft(v3, 12) + Integer.rotateLeft(v4, 18);
+      } else {
+        h = semilla + X32_P5;
+      }
+      h += longitud;
+      for (; i + 4 <= fin; i += 4) {
+        h += int32(llave, i) * X32_P3;
+        h = Integer.rotateLeft(h, 17) * X32_P4;
+      }
+      for (; i < fin; i++) {
+        h += (llave[i] & 0xFF) * X32_P5;
+        h = Integer.rotateLeft(h, 11) * X32_P1;
+      }
+      h ^= h >>> 15;
+      h *= X32_P2;
+      h ^= h >>> 13;
+      h *= X32_P3;
+      h ^= h >>> 16;
+      return h;
+    }
+
+    /**
+     * Función de dispersión xxHash de 64 bits, con semilla 0.
+     * @param llave la llave a dispersar.
+     * @return la dispersión xxHash64 de la llave.
+     */
+    public static long dispersaXXH64(byte[] llave) {
+      return dispersaXXH64(llave, 0, llave.length, 0);
+    }
+
+    /**
+     * Función de dispersión xxHash de 64 bits sobre un pedazo de un arreglo,
+     * con semilla 0.
+     * @param llave el arreglo con la llave a dispersar.
+     * @param inicio dónde empieza la llave en el arreglo.
+     * @param longitud la longitud de la llave.
+     * @return la dispersión xxHash64 de la llave.
+     */
+    public static long dispersaXXH64(byte[] llave, int inicio, int longitud) {
+      return dispersaXXH64(llave, inicio, longitud, 0);
+    }
+
+    /**
+     * Función de dispersión xxHash de 64 bits sobre una región de un búfer,
+     * con semilla 0. La posición y el límite del búfer no se modifican.
+     * @param llave el búfer con la llave a dispersar.
+     * @param inicio dónde empieza la llave en el búfer.
+     * @param longitud la longitud de la llave.
+     * @return la dispersión xxHash64 de la llave.
+     */
+    public static long dispersaXXH64(ByteBuffer llave, int inicio, int longitud) {
+      if (llave.hasArray())
+        return dispersaXXH64(llave.array(), llave.arrayOffset() + inicio, longitud, 0);
+      return dispersaXXH64(copia(llave, inicio, longitud), 0, longitud, 0);
+    }
+
+    /**
+     * Función de dispersión xxHash de 64 bits sobre la codificación en UTF-8
+     * de una secuencia de caracteres, con semilla 0.
+     * @param llave la llave a dispersar.
+     * @return la dispersión xxHash64 de la llave.
+     */
+    public static long dispersaXXH64(CharSequence llave) {
+      int n = codifica(llave);
+      return dispersaXXH64(AUXILIAR.get(), 0, n, 0);
+    }
+
+    /**
+     * Función de dispersión xxHash de 64 bits sobre la codificación en UTF-8 de
+     * una secuencia de caracteres, con una semilla.
+     * @param llave la llave a dispersar.
+     * @param semilla la semilla.
+     * @return la dispersión xxHash64 de la llave.
+     */
+    public static long dispersaXXH64(CharSequence llave, long semilla) {
+      int n = codifica(llave);
+      return dispersaXXH64(AUXILIAR.get(), 0, n, semilla);
+    }
+
+    /* Una ronda de xxHash64. */
+    private static long ronda64(long acumulador, long entrada) {
+      acumulador += entrada * X64_P2;
+      acumulador = Long.rotateLeft(acumulador, 31);
+      return acumulador * X64_P1;
+    }
+
+    /* Combina un acumulador de xxHash64 con la dispersión. */
+    private static long combina64(long h, long v) {
+      h ^= ronda64(0, v);
+      return h * X64_P1 + X64_P4;
+    }
+
+    /**
+     * Función de dispersión xxHash de 64 bits sobre un pedazo de un arreglo,
+     * con una semilla.
+     * @param llave el arreglo con la llave a dispersar.
+     * @param inicio dónde empieza la llave en el arreglo.
+     * @param longitud la longitud de la llave.
+     * @param semilla la semilla.
+     * @return la dispersión xxHash64 de la llave.
+     */
+    public static long dispersaXXH64(byte[] llave, int inicio, int longitud,
+                                     long semilla) {
+      int i = inicio;
+      int fin = inicio + longitud;
+      long h;
+      if (longitud >= 32) {
+        long v1 = semilla + X64_P1 + X64_P2;
+        long v2 = semilla + X64_P2;
+        long v3 = semilla;
+        long v4 = semilla - X64_P1;
+        int limite = fin - 32;
+        do {
+          v1 = ronda64(v1, int64(llave, i));
+          v2 = ronda64(v2, int64(llave, i + 8));
+          v3 = ronda64(v3, int64(llave, i + 16));
+          v4 = ronda64(v4, int64(llave, i + 24));
+          i += 32;
+        } while (i <= limite);
+        h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) +
+          Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+        h = combina64(h, v1);
+        h = combina64(h, v2);
+        h = combina64(h, v3);
+        h = combina64(h, v4);
+      } else {
+        h = semilla + X64_P5;
+      }
+      h += longitud;
+      for (; i + 8 <= fin; i += 8) {
+        h ^= ronda64(0, int64(llave, i));
+        h = Long.rotateLeft(h, 27) * X64_P1 + X64_P4;
+      }
+      if (i + 4 <= fin) {
+        h ^= (int32(llave, i) & 0xFFFFFFFFL) * X64_P1;
+        h = Long.rotateLeft(h, 23) * X64_P2 + X64_P3;
+        i += 4;
+      }
+      for (; i < fin; i++) {
+        h ^= (llave[i] & 0xFF) * X64_P5;
+        h = Long.rotateLeft(h, 11) * X64_P1;
+      }
+      h ^= h >>> 33;
+      h *= X64_P2;
+      h ^= h >>> 29;
+      h *= X64_P3;
+      h ^= h >>> 32;
+      return h;
+    }
+
+    /**
+     * Función de dispersión wyhash, con semilla 0.
+     * @param llave la llave a dispersar.
+     * @return la dispersión wyhash de la llave.
+     */
+    public static long dispersaWyhash(byte[] llave) {
+      return dispersaWyhash(llave, 0, llave.length, 0);
+    }
+
+    /**
+     * Función de dispersión wyhash sobre un pedazo de un arreglo, con
+     * semilla 0.
+     * @param llave el arreglo con la llave a dispersar.
+     * @param inicio dónde empieza la llave en el arreglo.
+     * @param longitud la longitud de la llave.
+     * @return la dispersión wyhash de la llave.
+     */
+    public static long dispersaWyhash(byte[] llave, int inicio, int longitud) {
+      return dispersaWyhash(llave, inicio, longitud, 0);
+    }
+
+    /**
+     * Función de dispersión wyhash sobre una región de un búfer, con semilla
+     * 0. La posición y el límite del búfer no se modifican.
+     * @param llave el búfer con la llave a dispersar.
+     * @param inicio dónde empieza la llave en el búfer.
+     * @param longitud la longitud de la llave.
+     * @return la dispersión wyhash de la llave.
+     */
+    public static long dispersaWyhash(ByteBuffer llave, int inicio, int longitud) {
+      if (llave.hasArray())
+        return dispersaWyhash(llave.array(), llave.arrayOffset() + inicio, longitud, 0);
+      return dispersaWyhash(copia(llave, inicio, longitud), 0, longitud, 0);
+    }
+
+    /**
+     * Función de dispersión wyhash sobre la codificación en UTF-8 de una
+     * secuencia de caracteres, con semilla 0.
+     * @param llave la llave a dispersar.
+     * @return la dispersión wyhash de la llave.
+     */
+    public static long dispersaWyhash(CharSequence llave) {
+      int n = codifica(llave);
+      return dispersaWyhash(AUXILIAR.get(), 0, n, 0);
+    }
+
+    /**
+     * Función de dispersión wyhash sobre la codificación en UTF-8 de
+     * una secuencia de caracteres, con una semilla.
+     * @param llave la llave a dispersar.
+     * @param semilla la semilla.
+     * @return la dispersión wyhash de la llave.
+     */
+    public static long dispersaWyhash(CharSequence llave, long semilla) {
+      int n = codifica(llave);
+      return dispersaWyhash(AUXILIAR.get(), 0, n, semilla);
+    }
+
+    /* Multiplica dos enteros de 64 bits sin signo, y regresa la mitad baja
+     * del producto de 128 bits combinada con XOR con la mitad alta. */
+    private static long wymezcla(long a, long b) {
+      long alta = Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+      return (a * b) ^ alta;
+    }
+
+    /* Lee de 1 a 3 bytes como lo hace wyhash. */
+    private static long wy3(byte[] llave, int i, int k) {
+      return ((llave[i] & 0xFFL) << 16) | ((llave[i + (k >> 1)] & 0xFFL) << 8) |
+        (llave[i + k - 1] & 0xFFL);
+    }
+
+    /* Lee 4 bytes sin signo. */
+    private static long wy4(byte[] llave, int i) {
+      return int32(llave, i) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Función de dispersión wyhash sobre un pedazo de un arreglo, con una
+     * semilla.
+     * @param llave el arreglo con la llave a dispersar.
+     * @param inicio dónde empieza la llave en el arreglo.
+     * @param longitud la longitud de la llave.
+     * @param semilla la semilla.
+     * @return la dispersión wyhash de la llave.
+     */
+    public static long dispersaWyhash(byte[] llave, int inicio, int longitud,
+                                      long semilla) {
+      semilla ^= wymezcla(semilla ^ WY_S0, WY_S1);
+      long a, b;
+      if (longitud <= 16) {
+        if (longitud >= 4) {
+          int d = (longitud >> 3) << 2;
+          a = (wy4(llave, inicio) << 32) | wy4(llave, inicio + d);
+          b = (wy4(llave, inicio + longitud - 4) << 32) |
+            wy4(llave, inicio + longitud - 4 - d);
+        } else if (longitud > 0) {
+          a = wy3(llave, inicio, longitud);
+          b = 0;
+        } else {
+          a = b = 0;
+        }
+      } else {
+        int p = inicio;
+        int i = longitud;
+        if (i >= 48) {
+          long v1 = semilla, v2 = semilla;
+          do {
+            semilla = wymezcla(int64(llave, p) ^ WY_S1, int64(llave, p + 8) ^ semilla);
+            v1 = wymezcla(int64(llave, p + 16) ^ WY_S2, int64(llave, p + 24) ^ v1);
+            v2 = wymezcla(int64(llave, p + 32) ^ WY_S3, int64(llave, p + 40) ^ v2);
+            p += 48;
+            i -= 48;
+          } while (i >= 48);
+          semilla ^= v1 ^ v2;
+        }
+        while (i > 16) {
+          semilla = wymezcla(int64(llave, p) ^ WY_S1, int64(llave, p + 8) ^ semilla);
+          i -= 16;
+          p += 16;
+        }
+        a = int64(llave, p + i - 16);
+        b = int64(llave, p + i - 8);
+      }
+      a ^= WY_S1;
+      b ^= semilla;
+      long alta = Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+      a *= b;
+      b = alta;
+      return wymezcla(a ^ WY_S0 ^ longitud, b ^ WY_S1);
+    }
 }
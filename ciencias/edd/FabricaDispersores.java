@@ -1,15 +1,28 @@
 package mx.unam.ciencias.edd;
 
+import java.security.SecureRandom;
+
 /**
  * Clase para fabricar dispersores.
  */
 public class FabricaDispersores {
 
+    /* Generador de semillas aleatorias. */
+    private static final SecureRandom SEMILLAS = new SecureRandom();
+
     /* Constructor privado para evitar instanciación. */
     private FabricaDispersores() {}
 
+    /* Reduce una dispersión de 64 bits a 32. */
+    private static int reduce(long h) {
+        return (int)(h ^ (h >>> 32));
+    }
+
     /**
-     * Regresa una instancia de {@link Dispersor} para cadenas.
+     * Regresa una instancia de {@link Dispersor} para cadenas. Los
+     * dispersores dispersan la codificación en UTF-8 de las cadenas sin crear
+     * arreglos de bytes; véase {@link Dispersores}. Las dispersiones de 64
+     * bits se reducen a 32 combinando sus dos mitades con XOR.
      * @param algoritmo el algoritmo de dispersor que se desea.
      * @return una instancia de {@link Dispersor} para cadenas.
      * @throws IllegalArgumentException si recibe un identificador no
@@ -19,12 +32,68 @@ public class FabricaDispersores {
     dispersorCadena(AlgoritmoDispersor algoritmo) {
         switch (algoritmo) {
         case XOR_STRING:
-            return c -> Dispersores.dispersaXOR(c.getBytes());
+            return c -> Dispersores.dispersaXOR(c);
+        case BJ_STRING:
+            return c -> Dispersores.dispersaBJ(c);
+        case DJB_STRING:
+            return c -> Dispersores.dispersaDJB(c);
+        case MURMUR3_STRING:
+            return c -> Dispersores.dispersaMurmur3(c);
+        case XXH32_STRING:
+            return c -> Dispersores.dispersaXXH32(c);
+        case XXH64_STRING:
+            return c -> reduce(Dispersores.dispersaXXH64(c));
+        case WYHASH_STRING:
+            return c -> reduce(Dispersores.dispersaWyhash(c));
+        default: throw new IllegalArgumentException("Algoritmo inválido");
+        }
+    }
+
+    /**
+     * Regresa una instancia de {@link Dispersor} para cadenas con una
+     * semilla. Dos dispersores con semillas distintas son funciones
+     * distintas, así que las colisiones fabricadas para uno no sirven contra
+     * el otro. Los algoritmos de 32 bits usan las dos mitades de la semilla
+     * combinadas con XOR.
+     * @param algoritmo el algoritmo de dispersor que se desea.
+     * @param semilla la semilla del dispersor.
+     * @return una instancia de {@link Dispersor} para cadenas.
+     * @throws IllegalArgumentException si recibe un identificador no
+     *         reconocido, o un algoritmo que no admite semilla (XOR y Daniel
+     *         J. Bernstein).
+     */
+    public static Dispersor<String>
+    dispersorCadena(AlgoritmoDispersor algoritmo, long semilla) {
+        int s = reduce(semilla);
+        switch (algoritmo) {
         case BJ_STRING:
-            return c -> Dispersores.dispersaBJ(c.getBytes());
+            return c -> Dispersores.dispersaBJ(c, s);
+        case MURMUR3_STRING:
+            return c -> Dispersores.dispersaMurmur3(c, s);
+        case XXH32_STRING:
+            return c -> Dispersores.dispersaXXH32(c, s);
+        case XXH64_STRING:
+            return c -> reduce(Dispersores.dispersaXXH64(c, semilla));
+        case WYHASH_STRING:
+            return c -> reduce(Dispersores.dispersaWyhash(c, semilla));
+        case XOR_STRING:
         case DJB_STRING:
-            return c -> Dispersores.dispersaDJB(c.getBytes());
+            throw new IllegalArgumentException("El algoritmo no admite semilla");
         default: throw new IllegalArgumentException("Algoritmo inválido");
         }
     }
+
+    /**
+     * Regresa una instancia de {@link Dispersor} para cadenas con una
+     * semilla aleatoria, distinta para cada instancia. Es el dispersor que
+     * conviene usar cuando las llaves vienen de fuera del programa.
+     * @param algoritmo el algoritmo de dispersor que se desea.
+     * @return una instancia de {@link Dispersor} para cadenas.
+     * @throws IllegalArgumentException si recibe un identificador no
+     *         reconocido, o un algoritmo que no admite semilla.
+     */
+    public static Dispersor<String>
+    dispersorCadenaAleatorio(AlgoritmoDispersor algoritmo) {
+        return dispersorCadena(algoritmo, SEMILLAS.nextLong());
+    }
 }
@@ -3,6 +3,8 @@ package mx.unam.ciencias.edd;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 
 /**
  * <p>Clase genérica para listas doblemente ligadas.</p>
@@ -483,6 +485,15 @@ public class Lista<T> implements Coleccion<T> {
         }
     }
 
+    /**
+     * Regresa un {@link Spliterator} de la lista, que respeta su orden.
+     * @return un {@link Spliterator} de la lista.
+     */
+    @Override public Spliterator<T> spliterator() {
+        return Spliterators.spliterator(iterator(), longitud,
+                                        Spliterator.ORDERED);
+    }
+
     /**
      * Regresa un iterador para recorrer la lista en una dirección.
      * @return un iterador para recorrer la lista en una dirección.
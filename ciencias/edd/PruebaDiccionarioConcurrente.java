@@ -0,0 +1,189 @@
+package mx.unam.ciencias.edd;
+
+import java.text.NumberFormat;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Programa que prueba y mide a {@link DiccionarioConcurrente}. Primero varios
+ * hilos cuentan a la vez las mismas llaves con <code>combina</code>, mientras
+ * otro hilo lee sin parar verificando que ninguna cuenta disminuya; al final
+ * las cuentas deben ser exactamente las esperadas. Después mide cuántas
+ * operaciones por segundo se hacen con 1 a HILOS hilos, comparando con un
+ * {@link Diccionario} protegido por un solo candado.
+ */
+public class PruebaDiccionarioConcurrente {
+
+    /* Imprime el uso del programa y lo termina. */
+    private static void uso() {
+        System.err.println("Uso: java mx.unam.ciencias.edd." +
+                           "PruebaDiccionarioConcurrente N HILOS");
+        System.exit(1);
+    }
+
+    /* Interfaz para contar una llave en un diccionario u otro. */
+    private interface Contador {
+        public void cuenta(Integer llave);
+    }
+
+    /* Ejecuta la acción con cada uno de los hilos, empezando todos a la vez;
+     * regresa el tiempo que tardaron en terminar todos. */
+    private static long ejecuta(int hilos, Runnable[] acciones) {
+        CountDownLatch salida = new CountDownLatch(1);
+        Thread[] t = new Thread[hilos];
+        for (int i = 0; i < hilos; i++) {
+            Runnable accion = acciones[i];
+            t[i] = new Thread(() -> {
+                    try {
+                        salida.await();
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                    accion.run();
+            });
+            t[i].start();
+        }
+        long tiempoInicial = System.nanoTime();
+        salida.countDown();
+        for (int i = 0; i < hilos; i++) {
+            try {
+                t[i].join();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return System.nanoTime() - tiempoInicial;
+    }
+
+    /* Reparte la cuenta de las llaves entre los hilos; regresa el tiempo que
+     * tardaron. */
+    private static long cuenta(int hilos, Integer[] llaves, Contador contador) {
+        Runnable[] acciones = new Runnable[hilos];
+        for (int h = 0; h < hilos; h++) {
+            int inicio = (int)((long)llaves.length * h / hilos);
+            int fin = (int)((long)llaves.length * (h + 1) / hilos);
+            acciones[h] = () -> {
+                for (int i = inicio; i < fin; i++)
+                    contador.cuenta(llaves[i]);
+            };
+        }
+        return ejecuta(hilos, acciones);
+    }
+
+    /* Verifica que las cuentas concurrentes sean exactas; regresa el número
+     * de errores. */
+    private static int estres(int N, int hilos, Random random) {
+        int M = Math.max(1, N / 16);
+        Integer[] llaves = new Integer[N];
+        int[] esperadas = new int[M];
+        for (int i = 0; i < N; i++) {
+            llaves[i] = random.nextInt(M);
+            esperadas[llaves[i]]++;
+        }
+
+        DiccionarioConcurrente<Integer, Integer> d =
+            new DiccionarioConcurrente<Integer, Integer>(0, k -> k, hilos);
+        AtomicBoolean terminado = new AtomicBoolean();
+        AtomicInteger errores = new AtomicInteger();
+        Thread lector = new Thread(() -> {
+                int[] vistas = new int[M];
+                while (!terminado.get()) {
+                    for (int k = 0; k < M; k++) {
+                        int c = d.getOPorOmision(k, 0);
+                        if (c < vistas[k])
+                            errores.incrementAndGet();
+                        vistas[k] = c;
+                    }
+                }
+        });
+        lector.start();
+        cuenta(hilos, llaves, k -> d.combina(k, 1, Integer::sum));
+        terminado.set(true);
+        try {
+            lector.join();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+
+        int presentes = 0;
+        for (int k = 0; k < M; k++) {
+            if (esperadas[k] > 0)
+                presentes++;
+            if (d.getOPorOmision(k, 0) != esperadas[k])
+                errores.incrementAndGet();
+        }
+        if (d.getElementos() != presentes)
+            errores.incrementAndGet();
+        int[] total = new int[1];
+        d.forEach((k, v) -> total[0] += v);
+        if (total[0] != N)
+            errores.incrementAndGet();
+        for (int k = 0; k < M; k += 2)
+            if (esperadas[k] > 0)
+                d.elimina(k);
+        for (int k = 0; k < M; k++)
+            if (d.contiene(k) != (k % 2 == 1 && esperadas[k] > 0))
+                errores.incrementAndGet();
+        return errores.get();
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2)
+            uso();
+
+        int N = -1, H = -1;
+        try {
+            N = Integer.parseInt(args[0]);
+            H = Integer.parseInt(args[1]);
+        } catch (NumberFormatException nfe) {
+            uso();
+        }
+
+        if (N < 1 || H < 1)
+            uso();
+
+        Random random = new Random();
+        NumberFormat nf = NumberFormat.getIntegerInstance();
+
+        int errores = estres(N, H, random);
+        System.out.printf("%s errores con %d hilos concurrentes.\n",
+                          nf.format(errores), H);
+
+        Integer[] llaves = new Integer[N];
+        for (int i = 0; i < N; i++)
+            llaves[i] = random.nextInt(Math.max(1, N / 16));
+
+        System.out.printf("%-6s %16s %16s\n", "Hilos", "Concurrente",
+                          "Un candado");
+        for (int hilos = 1; hilos <= H; hilos++) {
+            DiccionarioConcurrente<Integer, Integer> c =
+                new DiccionarioConcurrente<Integer, Integer>();
+            Diccionario<Integer, Integer> d = new Diccionario<Integer, Integer>();
+            /* Se calienta la máquina virtual antes de medir. */
+            cuenta(hilos, llaves, k -> c.combina(k, 1, Integer::sum));
+            cuenta(hilos, llaves, k -> {
+                    synchronized (d) {
+                        d.combina(k, 1, Integer::sum);
+                    }
+            });
+            c.limpia();
+            d.limpia();
+
+            long concurrente =
+                cuenta(hilos, llaves, k -> c.combina(k, 1, Integer::sum));
+            long candado = cuenta(hilos, llaves, k -> {
+                    synchronized (d) {
+                        d.combina(k, 1, Integer::sum);
+                    }
+            });
+            System.out.printf("%-6d %16s %16s\n", hilos,
+                              nf.format((long)(N / (concurrente/1000000000.0))),
+                              nf.format((long)(N / (candado/1000000000.0))));
+        }
+        System.out.println("(operaciones por segundo)");
+        if (errores > 0)
+            System.exit(1);
+    }
+}
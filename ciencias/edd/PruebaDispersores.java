@@ -0,0 +1,238 @@
+package mx.unam.ciencias.edd;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.text.NumberFormat;
+import java.util.Random;
+
+/**
+ * Programa que compara los dispersores de {@link Dispersores} con sus
+ * versiones anteriores: primero verifica que ambas regresen exactamente las
+ * mismas dispersiones para llaves aleatorias de todas las longitudes (y que
+ * los dispersores modernos coincidan con los vectores de prueba de sus
+ * implementaciones de referencia), y
+ * después mide cuánto tarda cada una en dispersar las mismas llaves, y
+ * cuánta memoria crea, si la máquina virtual lo permite.
+ */
+public class PruebaDispersores {
+
+    /* Número de veces que se dispersa cada llave al medir. */
+    private static final int REPETICIONES = 10;
+
+    /* Imprime el uso del programa y lo termina. */
+    private static void uso() {
+        System.err.println("Uso: java mx.unam.ciencias.edd.PruebaDispersores " +
+                           "N LONGITUD");
+        System.exit(1);
+    }
+
+    /* La versión anterior de la mezcla de Bob Jenkins, que regresa un
+     * arreglo nuevo en cada llamada. */
+    private static int[] mezclaAnterior(int a, int b, int c) {
+        int[] r = new int[3];
+        a -= b; a -= c; a ^= (c >>> 13);
+        b -= c; b -= a; b ^= (a << 8);
+        c -= a; c -= b; c ^= (b >>> 13);
+        a -= b; a -= c; a ^= (c >>> 12);
+        b -= c; b -= a; b ^= (a << 16);
+        c -= a; c -= b; c ^= (b >>> 5);
+        a -= b; a -= c; a ^= (c >>> 3);
+        b -= c; b -= a; b ^= (a << 10);
+        c -= a; c -= b; c ^= (b >>> 15);
+        r[0] = a;
+        r[1] = b;
+        r[2] = c;
+        return r;
+    }
+
+    /* La versión anterior de la dispersión de Bob Jenkins. */
+    @SuppressWarnings("fallthrough")
+    private static int dispersaBJAnterior(byte[] llave) {
+        int a = 0x9e3779b9;
+        int b = 0x9e3779b9;
+        int c = 0xffffffff;
+        int i = 0;
+        int available = llave.length;
+        int n = llave.length;
+        while (available >= 12) {
+            a += ((llave[i] & 0xFF) | ((llave[i + 1] & 0xFF) << 8) |
+                  ((llave[i + 2] & 0xFF) << 16) | ((llave[i + 3] & 0xFF) << 24));
+            b += ((llave[i + 4] & 0xFF) | ((llave[i + 5] & 0xFF) << 8) |
+                  ((llave[i + 6] & 0xFF) << 16) | ((llave[i + 7] & 0xFF) << 24));
+            c += ((llave[i + 8] & 0xFF) | ((llave[i + 9] & 0xFF) << 8) |
+                  ((llave[i + 10] & 0xFF) << 16) |
+                  ((llave[i + 11] & 0xFF) << 24));
+            int[] r = mezclaAnterior(a, b, c);
+            a = r[0]; b = r[1]; c = r[2];
+            i += 12;
+            available -= 12;
+        }
+        c += n;
+        switch (available) {
+        case 11: c += ((llave[i + 10] & 0xFF) << 24);
+        case 10: c += ((llave[i + 9] & 0xFF) << 16);
+        case 9:  c += ((llave[i + 8] & 0xFF) << 8);
+        case 8:  b += ((llave[i + 7] & 0xFF) << 24);
+        case 7:  b += ((llave[i + 6] & 0xFF) << 16);
+        case 6:  b += ((llave[i + 5] & 0xFF) << 8);
+        case 5:  b += (llave[i + 4] & 0xFF);
+        case 4:  a += ((llave[i + 3] & 0xFF) << 24);
+        case 3:  a += ((llave[i + 2] & 0xFF) << 16);
+        case 2:  a += ((llave[i + 1] & 0xFF) << 8);
+        case 1:  a += (llave[i] & 0xFF);
+        }
+        int[] r = mezclaAnterior(a, b, c);
+        return r[2];
+    }
+
+    /* Verifica que ambas versiones coincidan; regresa el número de llaves
+     * en las que difieren. */
+    private static int verifica(Random random) {
+        int diferentes = 0;
+        for (int longitud = 0; longitud <= 256; longitud++) {
+            for (int k = 0; k < 100; k++) {
+                byte[] llave = new byte[longitud];
+                random.nextBytes(llave);
+                int h = dispersaBJAnterior(llave);
+                byte[] relleno = new byte[longitud + 10];
+                System.arraycopy(llave, 0, relleno, 3, longitud);
+                if (Dispersores.dispersaBJ(llave) != h ||
+                    Dispersores.dispersaBJ(relleno, 3, longitud) != h)
+                    diferentes++;
+            }
+        }
+        return diferentes;
+    }
+
+    /* Verifica los vectores de prueba de MurmurHash3, xxHash y wyhash;
+     * regresa el número de vectores que no coinciden. */
+    private static int vectores() {
+        int diferentes = 0;
+        byte[] vacia = new byte[0];
+        byte[] abc = "abc".getBytes(StandardCharsets.UTF_8);
+        byte[] hola = "hello".getBytes(StandardCharsets.UTF_8);
+        byte[] zorro = "The quick brown fox jumps over the lazy dog"
+            .getBytes(StandardCharsets.UTF_8);
+        byte[] nadie = "Nobody inspects the spammish repetition"
+            .getBytes(StandardCharsets.UTF_8);
+        if (Dispersores.dispersaMurmur3(vacia) != 0)
+            diferentes++;
+        if (Dispersores.dispersaMurmur3(hola) != 0x248bfa47)
+            diferentes++;
+        if (Dispersores.dispersaMurmur3(zorro) != 0x2e4ff723)
+            diferentes++;
+        if (Dispersores.dispersaXXH32(vacia) != 0x02cc5d05)
+            diferentes++;
+        if (Dispersores.dispersaXXH32(abc) != 0x32d153ff)
+            diferentes++;
+        if (Dispersores.dispersaXXH32(nadie) != 0xe2293b2f)
+            diferentes++;
+        if (Dispersores.dispersaXXH64(vacia) != 0xef46db3751d8e999L)
+            diferentes++;
+        if (Dispersores.dispersaXXH64(abc) != 0x44bc2cf5ad770999L)
+            diferentes++;
+        if (Dispersores.dispersaXXH64(nadie) != 0xfbcea83c8a378bf1L)
+            diferentes++;
+        String[] wy = { "", "a", "abc", "message digest",
+                        "abcdefghijklmnopqrstuvwxyz",
+                        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz" +
+                        "0123456789",
+                        "1234567890123456789012345678901234567890" +
+                        "1234567890123456789012345678901234567890" };
+        long[] esperados = { 0x93228a4de0eec5a2L, 0xc5bac3db178713c4L,
+                             0xa97f2f7b1d9b3314L, 0x786d1f1df3801df4L,
+                             0xdca5a8138ad37c87L, 0xb9e734f117cfaf70L,
+                             0x6cc5eab49a92d617L };
+        /* Los vectores de wyhash usan como semilla el índice del vector. */
+        for (int i = 0; i < wy.length; i++) {
+            byte[] b = wy[i].getBytes(StandardCharsets.UTF_8);
+            if (Dispersores.dispersaWyhash(b, 0, b.length, i) != esperados[i])
+                diferentes++;
+        }
+        return diferentes;
+    }
+
+    /* Regresa los bytes creados hasta ahora por el hilo actual, o -1 si la
+     * máquina virtual no los reporta. */
+    private static long memoriaCreada() {
+        ThreadMXBean t = ManagementFactory.getThreadMXBean();
+        if (!(t instanceof com.sun.management.ThreadMXBean))
+            return -1;
+        return ((com.sun.management.ThreadMXBean)t).getCurrentThreadAllocatedBytes();
+    }
+
+    /* Imprime el tiempo y la memoria de una medición. */
+    private static void reporta(String version, long tiempo, long memoria,
+                                double megas, NumberFormat nf) {
+        System.out.printf("%2.9f segundos con la versión %s " +
+                          "(%.2f MB/s, %s bytes creados).\n",
+                          (tiempo/1000000000.0), version,
+                          megas / (tiempo/1000000000.0),
+                          memoria < 0 ? "?" : nf.format(memoria));
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2)
+            uso();
+
+        int N = -1, L = -1;
+        try {
+            N = Integer.parseInt(args[0]);
+            L = Integer.parseInt(args[1]);
+        } catch (NumberFormatException nfe) {
+            uso();
+        }
+
+        if (N < 1 || L < 0)
+            uso();
+
+        Random random = new Random();
+        NumberFormat nf = NumberFormat.getIntegerInstance();
+
+        int diferentes = verifica(random);
+        System.out.printf("%s llaves con dispersiones diferentes.\n",
+                          nf.format(diferentes));
+        int incorrectos = vectores();
+        System.out.printf("%s vectores de prueba incorrectos.\n",
+                          nf.format(incorrectos));
+        diferentes += incorrectos;
+
+        byte[][] llaves = new byte[N][L];
+        for (int i = 0; i < N; i++)
+            random.nextBytes(llaves[i]);
+        double megas = (double)N * L * REPETICIONES / (1024.0 * 1024.0);
+
+        /* Se calienta la máquina virtual antes de medir, y se acumulan las
+         * dispersiones para que no se eliminen los cálculos. */
+        int suma = 0;
+        for (int i = 0; i < N; i++)
+            suma += dispersaBJAnterior(llaves[i]) + Dispersores.dispersaBJ(llaves[i]);
+
+        long tiempoInicial, tiempoTotal, memoriaInicial, memoriaTotal;
+
+        memoriaInicial = memoriaCreada();
+        tiempoInicial = System.nanoTime();
+        for (int r = 0; r < REPETICIONES; r++)
+            for (int i = 0; i < N; i++)
+                suma += dispersaBJAnterior(llaves[i]);
+        tiempoTotal = System.nanoTime() - tiempoInicial;
+        memoriaTotal = memoriaCreada() - memoriaInicial;
+        reporta("anterior", tiempoTotal, memoriaInicial < 0 ? -1 : memoriaTotal,
+                megas, nf);
+
+        memoriaInicial = memoriaCreada();
+        tiempoInicial = System.nanoTime();
+        for (int r = 0; r < REPETICIONES; r++)
+            for (int i = 0; i < N; i++)
+                suma += Dispersores.dispersaBJ(llaves[i]);
+        tiempoTotal = System.nanoTime() - tiempoInicial;
+        memoriaTotal = memoriaCreada() - memoriaInicial;
+        reporta("actual", tiempoTotal, memoriaInicial < 0 ? -1 : memoriaTotal,
+                megas, nf);
+
+        System.out.printf("Suma de control: %d\n", suma);
+        if (diferentes > 0)
+            System.exit(1);
+    }
+}
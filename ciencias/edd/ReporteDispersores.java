@@ -0,0 +1,80 @@
+package mx.unam.ciencias.edd;
+
+import java.text.NumberFormat;
+
+/**
+ * Programa que reporta la calidad de la distribución de cada algoritmo de
+ * {@link AlgoritmoDispersor} (y del dispersor por omisión, que usa
+ * <code>hashCode()</code>) sobre las palabras de los archivos recibidos. Para
+ * cada dispersor llena un {@link Diccionario} contando las palabras, y
+ * reporta su carga, sus crecimientos, cómo cambió su carga, el histograma de longitudes de las
+ * casillas, el promedio de comparaciones de las búsquedas exitosas y
+ * fallidas, y la varianza de la ocupación de las casillas.
+ */
+public class ReporteDispersores {
+
+    /* Imprime el uso del programa y lo termina. */
+    private static void uso() {
+        System.err.println("Uso: java mx.unam.ciencias.edd.ReporteDispersores " +
+                           "ARCHIVO...");
+        System.exit(1);
+    }
+
+    /* Llena un diccionario con el dispersor e imprime su reporte. */
+    private static void reporta(String nombre, Dispersor<String> dispersor,
+                                Lista<String> palabras, NumberFormat nf) {
+        Diccionario<String, Integer> d =
+            new Diccionario<String, Integer>(dispersor);
+        for (String p : palabras)
+            d.combina(p, 1, Integer::sum);
+
+        System.out.printf("== %s ==\n", nombre);
+        System.out.printf("Llaves: %s, casillas: %s, carga: %.3f, " +
+                          "crecimientos: %d.\n",
+                          nf.format(d.getElementos()), nf.format(d.getCasillas()),
+                          d.carga(), d.getCrecimientos());
+        double[] historial = d.historialCarga();
+        if (historial.length == 0) {
+            System.out.printf("Carga cada %d inserciones: -\n",
+                              Diccionario.MUESTREO_CARGA);
+        } else {
+            double minima = historial[0], maxima = historial[0], suma = 0;
+            for (double c : historial) {
+                minima = Math.min(minima, c);
+                maxima = Math.max(maxima, c);
+                suma += c;
+            }
+            System.out.printf("Carga cada %d inserciones: %d muestras, " +
+                              "mínima %.3f, promedio %.3f, máxima %.3f.\n",
+                              Diccionario.MUESTREO_CARGA, historial.length,
+                              minima, suma / historial.length, maxima);
+        }
+        System.out.printf("Colisiones: %s, colisión máxima: %s.\n",
+                          nf.format(d.colisiones()), nf.format(d.colisionMaxima()));
+        System.out.printf("Comparaciones por búsqueda exitosa: %.3f, " +
+                          "por búsqueda fallida: %.3f.\n",
+                          d.sondeosExitosos(), d.sondeosFallidos());
+        System.out.printf("Varianza de la ocupación: %.3f.\n",
+                          d.varianzaOcupacion());
+        System.out.println("Histograma (entradas: casillas):");
+        int[] histograma = d.histogramaCasillas();
+        for (int k = 0; k < histograma.length; k++)
+            if (histograma[k] > 0)
+                System.out.printf("  %3d: %s\n", k, nf.format(histograma[k]));
+        System.out.println();
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0)
+            uso();
+
+        Lista<String> palabras = ComparaDispersores.leePalabras(args);
+
+        NumberFormat nf = NumberFormat.getIntegerInstance();
+        System.out.printf("%s palabras.\n\n", nf.format(palabras.getElementos()));
+        reporta("hashCode()", s -> s.hashCode(), palabras, nf);
+        for (AlgoritmoDispersor algoritmo : AlgoritmoDispersor.values())
+            reporta(algoritmo.toString(),
+                    FabricaDispersores.dispersorCadena(algoritmo), palabras, nf);
+    }
+}
@@ -0,0 +1,55 @@
+package mx.unam.ciencias.edd;
+
+/**
+ * Interfaz para tablas que cuentan palabras. Las gráficas y los árboles del
+ * proyecto sólo necesitan recorrer una tabla con su {@link CursorConteo}, así
+ * que sirven igual para cualquier implementación.
+ */
+public interface TablaConteo {
+
+    /**
+     * Incrementa la cuenta de la palabra. Si la palabra no estaba en la
+     * tabla, se agrega con la cuenta recibida.
+     * @param palabra la palabra a contar.
+     * @param n cuánto incrementar la cuenta.
+     * @return la nueva cuenta de la palabra.
+     * @throws IllegalArgumentException si la palabra es nula.
+     */
+    public int incrementa(String palabra, int n);
+
+    /**
+     * Incrementa en uno la cuenta de la palabra formada por un rango de
+     * caracteres.
+     * @param buffer el arreglo con los caracteres de la palabra.
+     * @param inicio dónde empieza la palabra en el arreglo.
+     * @param longitud la longitud de la palabra.
+     * @return la nueva cuenta de la palabra.
+     */
+    public int incrementa(char[] buffer, int inicio, int longitud);
+
+    /**
+     * Regresa la cuenta de la palabra.
+     * @param palabra la palabra de la que queremos su cuenta.
+     * @return la cuenta de la palabra, o 0 si no está en la tabla.
+     */
+    public int get(String palabra);
+
+    /**
+     * Regresa el número de palabras distintas en la tabla.
+     * @return el número de palabras distintas en la tabla.
+     */
+    public int getElementos();
+
+    /**
+     * Regresa la suma de las cuentas de todas las palabras.
+     * @return la suma de las cuentas de todas las palabras.
+     */
+    public long getTotal();
+
+    /**
+     * Regresa un cursor para recorrer las palabras de la tabla con sus
+     * cuentas. La tabla se recorre sin ningún orden específico.
+     * @return un cursor para recorrer la tabla.
+     */
+    public CursorConteo cursor();
+}
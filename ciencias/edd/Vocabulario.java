@@ -0,0 +1,327 @@
+package mx.unam.ciencias.edd;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * <p>Clase para vocabularios: asigna a cada palabra distinta un identificador
+ * entero, denso y único, la primera vez que la ve. Cada palabra se guarda una
+ * sola vez sin importar en cuántos archivos aparezca, y las tablas de cada
+ * archivo pueden contar identificadores en lugar de cadenas (véase {@link
+ * ConteoVocabulario}).</p>
+ *
+ * <p>Varios hilos pueden usar el mismo vocabulario. Las palabras se reparten
+ * en segmentos, cada uno con su propio candado de tipo {@link StampedLock}:
+ * buscar una palabra que ya existe es una lectura optimista que no toma el
+ * candado, y sólo agregar una palabra nueva lo toma para escribir.</p>
+ *
+ * <p>Las palabras se dispersan con la mezcla de MurmurHash3 sobre sus
+ * caracteres, con una semilla aleatoria distinta para cada vocabulario, así
+ * que no se pueden preparar de antemano palabras que choquen, como sí se
+ * puede con {@link String#hashCode}.</p>
+ */
+public class Vocabulario {
+
+    /* Clase interna privada para las tablas de los segmentos. Los tres
+     * arreglos se reemplazan juntos al crecer, para que una lectura optimista
+     * siempre vea arreglos del mismo tamaño. */
+    private static class Tabla {
+
+        /* Las palabras; una casilla vacía tiene null. */
+        public final String[] palabras;
+        /* Las dispersiones de las palabras. */
+        public final int[] dispersiones;
+        /* Los identificadores de las palabras. */
+        public final int[] ids;
+
+        /* Construye una tabla vacía con n casillas. */
+        public Tabla(int n) {
+            palabras = new String[n];
+            dispersiones = new int[n];
+            ids = new int[n];
+        }
+    }
+
+    /* Clase interna privada para segmentos. */
+    @SuppressWarnings("serial")
+    private static class Segmento extends StampedLock {
+
+        /* La tabla del segmento. */
+        public Tabla tabla;
+        /* Número de palabras del segmento. */
+        public int elementos;
+
+        /* Construye un segmento vacío. */
+        public Segmento() {
+            tabla = new Tabla(MINIMA_CAPACIDAD);
+        }
+
+        /* Regresa el identificador del rango de caracteres, o -1 si no está
+         * en el segmento. Puede llamarse sin el candado, pero entonces el
+         * resultado sólo sirve si el sello sigue siendo válido. */
+        public int busca(char[] buffer, int inicio, int longitud, int h) {
+            Tabla t = tabla;
+            int mascara = t.palabras.length - 1;
+            int i = h & mascara;
+            String p;
+            while ((p = t.palabras[i]) != null) {
+                if (t.dispersiones[i] == h && iguales(p, buffer, inicio, longitud))
+                    return t.ids[i];
+                i = (i + 1) & mascara;
+            }
+            return -1;
+        }
+
+        /* Regresa el identificador de la palabra, o -1 si no está en el
+         * segmento. Igual que la anterior, puede llamarse sin el candado. */
+        public int busca(String palabra, int h) {
+            Tabla t = tabla;
+            int mascara = t.palabras.length - 1;
+            int i = h & mascara;
+            String p;
+            while ((p = t.palabras[i]) != null) {
+                if (t.dispersiones[i] == h && p.equals(palabra))
+                    return t.ids[i];
+                i = (i + 1) & mascara;
+            }
+            return -1;
+        }
+
+        /* Agrega una palabra que no está en el segmento, con su
+         * identificador. Debe llamarse con el candado de escritura. */
+        public void agrega(String palabra, int h, int id) {
+            Tabla t = tabla;
+            int mascara = t.palabras.length - 1;
+            int i = h & mascara;
+            while (t.palabras[i] != null)
+                i = (i + 1) & mascara;
+            t.dispersiones[i] = h;
+            t.ids[i] = id;
+            t.palabras[i] = palabra;
+            if (++elementos >= t.palabras.length * MAXIMA_CARGA)
+                crece();
+        }
+
+        /* Duplica la tabla y redistribuye las palabras con sus dispersiones
+         * guardadas. */
+        private void crece() {
+            Tabla vieja = tabla;
+            Tabla nueva = new Tabla(vieja.palabras.length * 2);
+            int mascara = nueva.palabras.length - 1;
+            for (int j = 0; j < vieja.palabras.length; j++) {
+                if (vieja.palabras[j] == null)
+                    continue;
+                int i = vieja.dispersiones[j] & mascara;
+                while (nueva.palabras[i] != null)
+                    i = (i + 1) & mascara;
+                nueva.palabras[i] = vieja.palabras[j];
+                nueva.dispersiones[i] = vieja.dispersiones[j];
+                nueva.ids[i] = vieja.ids[j];
+            }
+            tabla = nueva;
+        }
+    }
+
+    /** Máxima carga permitida por cada segmento. */
+    public static final double MAXIMA_CARGA = 0.6;
+
+    /* Capacidad mínima de cada segmento. */
+    private static final int MINIMA_CAPACIDAD = 16;
+
+    /* Número de segmentos; debe ser potencia de dos. */
+    private static final int SEGMENTOS = 64;
+
+    /* Bits de la dispersión que eligen el segmento. */
+    private static final int BITS_SEGMENTO = 6;
+
+    /* Bits del identificador que eligen la posición dentro de un bloque. */
+    private static final int BITS_BLOQUE = 16;
+
+    /* Generador de semillas aleatorias. */
+    private static final SecureRandom SEMILLAS = new SecureRandom();
+
+    /* Los segmentos. */
+    private Segmento[] segmentos;
+    /* Las palabras por identificador, en bloques de 2^16. */
+    private AtomicReferenceArray<String[]> bloques;
+    /* El siguiente identificador; se usa sólo en métodos sincronizados. */
+    private int siguiente;
+    /* La semilla de la dispersión. */
+    private final int semilla;
+
+    /**
+     * Construye un vocabulario vacío.
+     */
+    public Vocabulario() {
+        segmentos = new Segmento[SEGMENTOS];
+        for (int i = 0; i < SEGMENTOS; i++)
+            segmentos[i] = new Segmento();
+        bloques = new AtomicReferenceArray<String[]>(1 << (31 - BITS_BLOQUE));
+        semilla = SEMILLAS.nextInt();
+    }
+
+    /* Dispersa un rango de caracteres. */
+    private int dispersa(char[] buffer, int inicio, int longitud) {
+        int h = semilla;
+        for (int k = inicio; k < inicio + longitud; k++)
+            h = Dispersores.mezclaMurmur3(h, buffer[k]);
+        return Dispersores.terminaMurmur3(h, longitud);
+    }
+
+    /* Dispersa una palabra; coincide con la dispersión de sus caracteres. */
+    private int dispersa(String palabra) {
+        int h = semilla;
+        for (int k = 0; k < palabra.length(); k++)
+            h = Dispersores.mezclaMurmur3(h, palabra.charAt(k));
+        return Dispersores.terminaMurmur3(h, palabra.length());
+    }
+
+    /* Regresa el segmento de una dispersión. */
+    private Segmento segmento(int h) {
+        return segmentos[h >>> (32 - BITS_SEGMENTO)];
+    }
+
+    /* Nos dice si la cadena tiene los mismos caracteres que el rango. */
+    private static boolean iguales(String s, char[] buffer, int inicio,
+                                   int longitud) {
+        if (s.length() != longitud)
+            return false;
+        for (int k = 0; k < longitud; k++)
+            if (s.charAt(k) != buffer[inicio + k])
+                return false;
+        return true;
+    }
+
+    /* Asigna el siguiente identificador a una palabra nueva y la guarda en
+     * su bloque. */
+    private synchronized int asigna(String palabra) {
+        int id = siguiente++;
+        if (id < 0)
+            throw new IllegalStateException("El vocabulario está lleno");
+        String[] bloque = bloques.get(id >>> BITS_BLOQUE);
+        if (bloque == null) {
+            bloque = new String[1 << BITS_BLOQUE];
+            bloques.set(id >>> BITS_BLOQUE, bloque);
+        }
+        bloque[id & ((1 << BITS_BLOQUE) - 1)] = palabra;
+        return id;
+    }
+
+    /**
+     * Regresa el identificador de la palabra formada por un rango de
+     * caracteres; si la palabra no está en el vocabulario, la agrega con un
+     * identificador nuevo. Si la palabra ya está no se crea ninguna cadena ni
+     * se toma ningún candado.
+     * @param buffer el arreglo con los caracteres de la palabra.
+     * @param inicio dónde empieza la palabra en el arreglo.
+     * @param longitud la longitud de la palabra.
+     * @return el identificador de la palabra.
+     */
+    public int id(char[] buffer, int inicio, int longitud) {
+        int h = dispersa(buffer, inicio, longitud);
+        Segmento s = segmento(h);
+        long sello = s.tryOptimisticRead();
+        if (sello != 0) {
+            int id = s.busca(buffer, inicio, longitud, h);
+            if (id >= 0 && s.validate(sello))
+                return id;
+        }
+        sello = s.writeLock();
+        try {
+            int id = s.busca(buffer, inicio, longitud, h);
+            if (id < 0) {
+                String palabra = new String(buffer, inicio, longitud);
+                id = asigna(palabra);
+                s.agrega(palabra, h, id);
+            }
+            return id;
+        } finally {
+            s.unlockWrite(sello);
+        }
+    }
+
+    /**
+     * Regresa el identificador de la palabra; si la palabra no está en el
+     * vocabulario, la agrega con un identificador nuevo.
+     * @param palabra la palabra.
+     * @return el identificador de la palabra.
+     * @throws IllegalArgumentException si la palabra es nula.
+     */
+    public int id(String palabra) {
+        if (palabra == null)
+            throw new IllegalArgumentException();
+        int h = dispersa(palabra);
+        Segmento s = segmento(h);
+        int id = busca(s, palabra, h);
+        if (id >= 0)
+            return id;
+        long sello = s.writeLock();
+        try {
+            id = s.busca(palabra, h);
+            if (id < 0) {
+                id = asigna(palabra);
+                s.agrega(palabra, h, id);
+            }
+            return id;
+        } finally {
+            s.unlockWrite(sello);
+        }
+    }
+
+    /**
+     * Regresa el identificador de la palabra, o -1 si la palabra no está en
+     * el vocabulario. Nunca agrega la palabra.
+     * @param palabra la palabra.
+     * @return el identificador de la palabra, o -1 si no está.
+     */
+    public int busca(String palabra) {
+        if (palabra == null)
+            return -1;
+        int h = dispersa(palabra);
+        return busca(segmento(h), palabra, h);
+    }
+
+    /* Busca una palabra en un segmento, primero con una lectura optimista y
+     * después con el candado de lectura. */
+    private int busca(Segmento s, String palabra, int h) {
+        long sello = s.tryOptimisticRead();
+        if (sello != 0) {
+            int id = s.busca(palabra, h);
+            if (s.validate(sello))
+                return id;
+        }
+        sello = s.readLock();
+        try {
+            return s.busca(palabra, h);
+        } finally {
+            s.unlockRead(sello);
+        }
+    }
+
+    /**
+     * Regresa la palabra de un identificador.
+     * @param id el identificador.
+     * @return la palabra del identificador.
+     * @throws IllegalArgumentException si el identificador no es válido.
+     */
+    public String palabra(int id) {
+        if (id < 0)
+            throw new IllegalArgumentException();
+        String[] bloque = bloques.get(id >>> BITS_BLOQUE);
+        String palabra = bloque == null ? null :
+            bloque[id & ((1 << BITS_BLOQUE) - 1)];
+        if (palabra == null)
+            throw new IllegalArgumentException();
+        return palabra;
+    }
+
+    /**
+     * Regresa el número de palabras distintas en el vocabulario; todos los
+     * identificadores son menores que este número.
+     * @return el número de palabras distintas en el vocabulario.
+     */
+    public synchronized int getElementos() {
+        return siguiente;
+    }
+}
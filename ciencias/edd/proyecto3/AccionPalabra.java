@@ -0,0 +1,17 @@
+package mx.unam.ciencias.edd.proyecto3;
+
+/**
+ * Interfaz para realizar acciones sobre las palabras que encuentra un
+ * {@link Tokenizador}.
+ */
+@FunctionalInterface
+public interface AccionPalabra {
+
+  /**
+   * Realiza una acción sobre una palabra. El arreglo es del tokenizador y se
+   * reutiliza para la siguiente palabra, así que no debe guardarse.
+   * @param palabra el arreglo con los caracteres de la palabra.
+   * @param longitud la longitud de la palabra.
+   */
+  public void actua(char[] palabra, int longitud);
+}
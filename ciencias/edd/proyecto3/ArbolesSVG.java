@@ -1,6 +1,5 @@
 package mx.unam.ciencias.edd.proyecto3;
 
-import java.util.Iterator;
 import java.util.Comparator;
 
 import mx.unam.ciencias.edd.*;
@@ -19,34 +18,28 @@ public class ArbolesSVG {
   public ArbolesSVG() {}
 
   /**
-   * Recibe el diccionario con los valores que van dentro de los
+   * Recibe el contador con los valores que van dentro de los
    * árboles binarios.
-   * @param diccionario diccionario del que vamos a sacar los valores de cada llave.
+   * @param contador contador del que vamos a sacar los valores de cada palabra.
    * @return una lista con los valores de las palabras más repetidas en
-   * el diccionario.
+   * el contador.
    */
-  public Lista<Integer> creaLista(Diccionario<String, Integer> diccionario){
+  public Lista<Integer> creaLista(TablaConteo contador){
 
     Lista<Integer> list = new Lista<>();
 
-    Iterator<String> it = diccionario.iteradorLlaves();
+    CursorConteo c = contador.cursor();
 
-    int total = getTotal(diccionario);
-    float media = getMedia(total, diccionario.getElementos());
+    int total = getTotal(contador);
+    float media = getMedia(total, contador.getElementos());
 
-    if (diccionario.getElementos() <= 15) {
-      for (int i = 0; i < diccionario.getElementos(); i++) {
-        String s = it.next();
-        int palabras = diccionario.get(s);
-        list.agrega(palabras);
-      }
+    if (contador.getElementos() <= 15) {
+      while (c.siguiente())
+        list.agrega(c.cuenta());
     } else {
-      for (int i = 0; i < diccionario.getElementos(); i++) {
-        String s = it.next();
-        int palabras = diccionario.get(s);
-        if (palabras > media)
-          list.agrega(palabras);
-      }
+      while (c.siguiente())
+        if (c.cuenta() > media)
+          list.agrega(c.cuenta());
     }
 
     list = getMayores(list);
@@ -75,20 +68,16 @@ public class ArbolesSVG {
   }
 
   /**
-   * Obtiene el total de palabras en diccionario.
-   * @param diccionario el diccionario del que queremos sacar el total de palabras.
+   * Obtiene el total de palabras en el contador.
+   * @param contador el contador del que queremos sacar el total de palabras.
    * @return el entero con el total de palabras.
    */
-  public int getTotal(Diccionario<String,Integer> diccionario) {
-    Iterator<String> it = diccionario.iteradorLlaves();
+  public int getTotal(TablaConteo contador) {
+    CursorConteo c = contador.cursor();
 
     int total = 0;
-    int p = 0;
-    for (int j = 0; j < diccionario.getElementos(); j++) {
-      String s = it.next();
-      p = diccionario.get(s);
-      total += p;
-    }
+    while (c.siguiente())
+      total += c.cuenta();
     return total;
   }
 
@@ -105,10 +94,10 @@ public class ArbolesSVG {
   /**
    * Genera la cadena correspondiente para nuestros árboles binarios
    * que contienen los valores de las palabras más repetidas.
-   * @param almacen el diccionario del que crearemos los árboles.
+   * @param almacen el contador del que crearemos los árboles.
    * @return la cadena con el código SVG para árboles binarios AVL y Rojinegros.
    */
-  public String cadenaArboles(Diccionario<String,Integer> almacen){
+  public String cadenaArboles(TablaConteo almacen){
     SVGArbolRojinegro ar = new SVGArbolRojinegro(creaLista(almacen));
     SVGArbolAVL avl = new SVGArbolAVL(creaLista(almacen));
     return "<p align=\"center\">" + ar.cadenaSVG() + "</p></br>" +
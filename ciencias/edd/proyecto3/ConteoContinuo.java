@@ -0,0 +1,155 @@
+package mx.unam.ciencias.edd.proyecto3;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import mx.unam.ciencias.edd.*;
+
+/**
+ * <p>Clase que cuenta un flujo sin fin conocido, como la entrada estándar, y
+ * grafica instantáneas periódicas de la cuenta mientras la sigue leyendo.
+ * Se toma una instantánea cada cierto número de segundos, cada cierto número
+ * de palabras, o ambos, y una última al terminar el flujo.</p>
+ *
+ * <p>Cada instantánea es una copia de la tabla tomada entre dos líneas, así
+ * que siempre es consistente; tomarla sólo detiene la lectura lo que tarda
+ * en copiarse la tabla. Las instantáneas se grafican en otro hilo, una a la
+ * vez: si llega una nueva mientras se grafica otra, sólo se grafica la más
+ * reciente.</p>
+ */
+public class ConteoContinuo {
+
+  /** La tabla donde se cuenta; se protege con su propio candado. */
+  private ConteoVocabulario almacen;
+  /** El nombre del flujo en los archivos HTML. */
+  private String nombre;
+  /** El directorio donde se generan los archivos HTML. */
+  private String directorio;
+  /** Cada cuántos segundos se toma una instantánea; 0 si nunca. */
+  private long segundos;
+  /** Cada cuántas palabras se toma una instantánea; 0 si nunca. */
+  private long palabras;
+
+  /** Cuántas palabras se han contado desde la última instantánea. */
+  private long contadas;
+  /** El total de la tabla en la última instantánea. */
+  private long ultimoTotal;
+  /** La instantánea que espera ser graficada, si hay una. */
+  private AtomicReference<ConteoVocabulario> siguiente;
+  /** El hilo que grafica las instantáneas. */
+  private ExecutorService graficador;
+  /** Cuántas instantáneas se han graficado. */
+  private volatile int graficadas;
+
+  /**
+   * Construye un conteo continuo.
+   * @param vocabulario el vocabulario compartido.
+   * @param nombre el nombre del flujo en los archivos HTML.
+   * @param directorio el directorio donde se generan los archivos HTML.
+   * @param segundos cada cuántos segundos se toma una instantánea; 0 si
+   *        nunca.
+   * @param palabras cada cuántas palabras se toma una instantánea; 0 si
+   *        nunca.
+   * @throws IllegalArgumentException si algún intervalo es negativo.
+   */
+  public ConteoContinuo(Vocabulario vocabulario, String nombre,
+                        String directorio, long segundos, long palabras) {
+    if (segundos < 0 || palabras < 0)
+      throw new IllegalArgumentException();
+    almacen = new ConteoVocabulario(vocabulario);
+    this.nombre = nombre;
+    this.directorio = directorio;
+    this.segundos = segundos;
+    this.palabras = palabras;
+    siguiente = new AtomicReference<>();
+  }
+
+  /**
+   * Cuenta todas las líneas del lector, tomando instantáneas mientras tanto,
+   * y grafica la cuenta final. Regresa cuando la última instantánea se
+   * terminó de graficar.
+   * @param br el lector del flujo.
+   * @return la tabla con la cuenta final.
+   * @throws IOException si hubo un error al leer el flujo.
+   * @throws InterruptedException si se interrumpió la espera del
+   *         graficador.
+   */
+  public TablaConteo procesa(BufferedReader br)
+    throws IOException, InterruptedException {
+    graficador = Executors.newSingleThreadExecutor();
+    ScheduledExecutorService reloj =
+      Executors.newSingleThreadScheduledExecutor();
+    if (segundos > 0)
+      reloj.scheduleAtFixedRate(this::instantanea, segundos, segundos,
+                                TimeUnit.SECONDS);
+
+    Tokenizador tokenizador = new Tokenizador();
+    AccionPalabra cuenta = (p, n) -> {
+      almacen.incrementa(p, 0, n);
+      contadas++;
+    };
+    try {
+      String linea;
+      while ((linea = br.readLine()) != null) {
+        boolean toma;
+        synchronized (almacen) {
+          tokenizador.tokeniza(linea, cuenta);
+          toma = palabras > 0 && contadas >= palabras;
+        }
+        if (toma)
+          instantanea();
+      }
+    } finally {
+      reloj.shutdownNow();
+      reloj.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+      instantanea();
+      graficador.shutdown();
+      graficador.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+    }
+    return almacen;
+  }
+
+  /**
+   * Regresa cuántas instantáneas se han graficado.
+   * @return cuántas instantáneas se han graficado.
+   */
+  public int getGraficadas() {
+    return graficadas;
+  }
+
+  /**
+   * Toma una instantánea de la tabla, si cambió desde la última, y la manda
+   * a graficar. Se puede llamar desde el hilo que cuenta o desde el reloj.
+   */
+  private void instantanea() {
+    ConteoVocabulario copia;
+    synchronized (almacen) {
+      contadas = 0;
+      if (almacen.esVacia() || almacen.getTotal() == ultimoTotal)
+        return;
+      ultimoTotal = almacen.getTotal();
+      copia = almacen.copia();
+    }
+    if (siguiente.getAndSet(copia) == null)
+      graficador.execute(this::grafica);
+  }
+
+  /** Grafica la instantánea más reciente, con su índice. */
+  private void grafica() {
+    ConteoVocabulario copia = siguiente.getAndSet(null);
+    if (copia == null)
+      return;
+    new GeneraHTML().generaArchivo(copia, nombre, directorio, 1);
+    Lista<String> archivos = new Lista<>();
+    archivos.agrega(nombre);
+    Lista<TablaConteo> tablas = new Lista<>();
+    tablas.agrega(copia);
+    new GeneraIndex().generaArchivo(archivos, tablas, directorio);
+    graficadas++;
+  }
+}
@@ -0,0 +1,209 @@
+package mx.unam.ciencias.edd.proyecto3;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.RecursiveAction;
+
+import mx.unam.ciencias.edd.*;
+
+/**
+ * Tarea que cuenta las palabras de un archivo partiéndolo en trozos de bytes.
+ * Los trozos siempre empiezan justo después de un salto de línea, y como las
+ * palabras nunca cruzan de una línea a otra, cada trozo se puede contar por
+ * separado. Cada hilo cuenta sus trozos en su propio fragmento de un
+ * {@link ContadorFragmentado}, sin sincronizarse con los demás; al final los
+ * fragmentos se combinan, y las cuentas son exactamente las mismas que si el
+ * archivo se leyera completo. Los trozos se pueden leer con un lector normal
+ * o con un {@link LectorMapeado}.
+ */
+@SuppressWarnings("serial")
+public class ConteoPorTrozos extends RecursiveAction {
+
+  /** Flujo de entrada que lee un rango de bytes de un canal. */
+  private static class Rango extends InputStream {
+
+    /** El canal del archivo. */
+    private FileChannel canal;
+    /** La siguiente posición a leer. */
+    private long posicion;
+    /** La posición donde termina el rango. */
+    private long fin;
+
+    /** Construye un flujo para el rango [inicio, fin) del canal. */
+    public Rango(FileChannel canal, long inicio, long fin) {
+      this.canal = canal;
+      this.posicion = inicio;
+      this.fin = fin;
+    }
+
+    /** Lee un byte del rango. */
+    @Override public int read() throws IOException {
+      byte[] b = new byte[1];
+      return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    /** Lee bytes del rango, sin pasarse de su fin. */
+    @Override public int read(byte[] b, int off, int len) throws IOException {
+      if (posicion >= fin)
+        return -1;
+      len = (int)Math.min(len, fin - posicion);
+      int n = canal.read(ByteBuffer.wrap(b, off, len), posicion);
+      if (n > 0)
+        posicion += n;
+      return n;
+    }
+  }
+
+  /** La entrada que sabe contar las líneas. */
+  private Entrada entrada;
+  /** Los fragmentos donde cuenta cada hilo. */
+  private ContadorFragmentado fragmentos;
+  /** El canal del archivo, compartido por todas las tareas. */
+  private FileChannel canal;
+  /** Los límites de los trozos. */
+  private long[] limites;
+  /** El primer trozo de la tarea. */
+  private int primero;
+  /** El trozo siguiente al último de la tarea. */
+  private int ultimo;
+  /** Si los trozos se leen mapeados a memoria. */
+  private boolean mapeado;
+
+  /**
+   * Construye una tarea para los trozos [primero, ultimo).
+   * @param entrada la entrada que sabe contar las líneas.
+   * @param fragmentos los fragmentos donde cuenta cada hilo.
+   * @param canal el canal del archivo.
+   * @param limites los límites de los trozos.
+   * @param primero el primer trozo de la tarea.
+   * @param ultimo el trozo siguiente al último de la tarea.
+   * @param mapeado si los trozos se leen mapeados a memoria.
+   */
+  private ConteoPorTrozos(Entrada entrada, ContadorFragmentado fragmentos,
+                          FileChannel canal, long[] limites,
+                          int primero, int ultimo, boolean mapeado) {
+    this.entrada = entrada;
+    this.fragmentos = fragmentos;
+    this.canal = canal;
+    this.limites = limites;
+    this.primero = primero;
+    this.ultimo = ultimo;
+    this.mapeado = mapeado;
+  }
+
+  /**
+   * Cuenta las palabras de los trozos de la tarea. Si tiene más de un trozo,
+   * se parte a la mitad y cuenta ambas mitades en paralelo.
+   */
+  @Override protected void compute() {
+    if (ultimo - primero == 1) {
+      cuentaTrozo();
+      return;
+    }
+
+    int mitad = (primero + ultimo) / 2;
+    invokeAll(new ConteoPorTrozos(entrada, fragmentos, canal, limites,
+                                  primero, mitad, mapeado),
+              new ConteoPorTrozos(entrada, fragmentos, canal, limites,
+                                  mitad, ultimo, mapeado));
+  }
+
+  /** Cuenta las palabras de un solo trozo en el fragmento del hilo. */
+  private void cuentaTrozo() {
+    ContadorPalabras almacen = fragmentos.fragmento();
+    if (mapeado) {
+      try {
+        new LectorMapeado().cuenta(canal, limites[primero], limites[ultimo],
+                                   almacen);
+      } catch(IOException ioe) {
+        throw new UncheckedIOException(ioe);
+      }
+      return;
+    }
+    InputStream rango = new Rango(canal, limites[primero], limites[ultimo]);
+    try (BufferedReader br = new BufferedReader(
+           new InputStreamReader(rango, Charset.defaultCharset()))) {
+      entrada.cuentaLineas(br, almacen);
+    } catch(IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+  }
+
+  /**
+   * Calcula los límites de los trozos de un archivo. Cada límite nominal se
+   * recorre hasta justo después del siguiente salto de línea.
+   * @param canal el canal del archivo.
+   * @param tamano el tamaño nominal de cada trozo, en bytes.
+   * @return los límites de los trozos; el trozo <em>i</em> es el rango
+   *         [limites[i], limites[i+1]).
+   * @throws IOException si hubo un error al leer el archivo.
+   */
+  private static long[] limites(FileChannel canal, long tamano)
+    throws IOException {
+    long total = canal.size();
+    Lista<Long> lista = new Lista<>();
+    lista.agrega(0L);
+    ByteBuffer buffer = ByteBuffer.allocate(8192);
+    long posicion = tamano;
+    while (posicion < total) {
+      long limite = -1;
+      while (limite == -1 && posicion < total) {
+        buffer.clear();
+        int n = canal.read(buffer, posicion);
+        if (n <= 0)
+          break;
+        for (int i = 0; i < n; i++)
+          if (buffer.get(i) == '\n') {
+            limite = posicion + i + 1;
+            break;
+          }
+        if (limite == -1)
+          posicion += n;
+      }
+      if (limite == -1 || limite >= total)
+        break;
+      lista.agrega(limite);
+      posicion = limite + tamano;
+    }
+    lista.agrega(total);
+
+    long[] limites = new long[lista.getElementos()];
+    int i = 0;
+    for (long l : lista)
+      limites[i++] = l;
+    return limites;
+  }
+
+  /**
+   * Cuenta las palabras de un archivo en trozos, usando el grupo común de
+   * hilos de <em>fork-join</em>. Cada hilo cuenta en su fragmento; los
+   * fragmentos se combinan después con {@link ContadorFragmentado#combina}.
+   * @param entrada la entrada que sabe contar las líneas.
+   * @param fragmentos los fragmentos donde cuenta cada hilo.
+   * @param archivo el nombre del archivo.
+   * @param tamano el tamaño nominal de cada trozo, en bytes.
+   * @param mapeado si los trozos se leen mapeados a memoria.
+   * @throws IOException si hubo un error al leer el archivo.
+   */
+  public static void cuenta(Entrada entrada, ContadorFragmentado fragmentos,
+                            String archivo, long tamano, boolean mapeado)
+    throws IOException {
+    Path ruta = Paths.get(archivo);
+    try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+      long[] limites = limites(canal, tamano);
+      new ConteoPorTrozos(entrada, fragmentos, canal, limites, 0,
+                          limites.length - 1, mapeado).invoke();
+    } catch(UncheckedIOException uioe) {
+      throw uioe.getCause();
+    }
+  }
+}
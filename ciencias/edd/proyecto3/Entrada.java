@@ -2,10 +2,20 @@ package mx.unam.ciencias.edd.proyecto3;
 
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.lang.NumberFormatException;
-import java.text.Normalizer;
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 import mx.unam.ciencias.edd.*;
 
@@ -19,9 +29,78 @@ public class Entrada{
   /** Directorio donde se generarán los archivos HTML */
   private static String directorio;
 
-  /** Lista que guarda los archivos recibidos en los argumentos. */
+  /**
+   * Lista que guarda los archivos, directorios y patrones recibidos en los
+   * argumentos.
+   */
   private static Lista<String> archivosRecibidos = new Lista<>();
 
+  /**
+   * Número de hilos de trabajo: en la {@link Tuberia}, cuántos hilos parten
+   * y cuentan los archivos; con las banderas <flag> -t </flag>,
+   * <flag> -m </flag> o <flag> -f </flag>, cuántos archivos se procesan al
+   * mismo tiempo. También es el número de hilos que recorren los
+   * directorios.
+   */
+  private static int hilos = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * Número de hilos que generan los archivos HTML en la tubería de
+   * {@link Tuberia}.
+   */
+  private static int graficadores = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * Número máximo de archivos abiertos al mismo tiempo cuando cada archivo
+   * se procesa en su propio hilo virtual; 0 si no se usan hilos virtuales.
+   */
+  private static int abiertos = 0;
+
+  /**
+   * Cada cuántos segundos se grafica una instantánea de la entrada estándar;
+   * 0 si nunca.
+   */
+  private static long segundos = 10;
+
+  /**
+   * Cada cuántas palabras se grafica una instantánea de la entrada estándar;
+   * 0 si nunca.
+   */
+  private static long palabras = 0;
+
+  /**
+   * Tamaño en bytes de los trozos en que se parte cada archivo para contarlo
+   * en paralelo; 0 si los archivos se leen completos.
+   */
+  private static long trozo = 0;
+
+  /** Si los archivos se leen mapeados a memoria como UTF-8. */
+  private static boolean mapeado = false;
+
+  /**
+   * Si los archivos se cuentan en una tabla fuera del heap; 0 si no, o el
+   * límite de memoria de cada tabla, en bytes.
+   */
+  private static long fueraDelHeap = 0;
+
+  /**
+   * Si se reporta en la salida de error el costo de combinar los fragmentos
+   * de cada archivo contado en trozos.
+   */
+  private static boolean estadisticas = false;
+
+  /**
+   * El vocabulario compartido por todos los archivos; cada palabra distinta
+   * se guarda una sola vez, y cada archivo cuenta sus identificadores.
+   */
+  private static Vocabulario vocabulario = new Vocabulario();
+
+  /**
+   * El lector de los documentos de los archivos procesados por separado;
+   * lo comparten todos los hilos, así que cada zip se abre una sola vez.
+   */
+  private LectorDocumentos documentos = new LectorDocumentos();
+
   /** */
   private ArbolesSVG arboles_svg = new ArbolesSVG();
 
@@ -31,7 +110,30 @@ public class Entrada{
   /**
    * Método que se encarga de leer la entrada de argumentos. Arroja un
    * error si no se encuentra la bandera <flag> -o </flag> o si no recibe
-   * un directorio después.
+   * un directorio después. La bandera opcional <flag> -j N </flag> indica
+   * cuántos hilos parten y cuentan los archivos en la {@link Tuberia}, o,
+   * con <flag> -t </flag>, <flag> -m </flag> o <flag> -f </flag>, cuántos
+   * archivos se procesan al mismo tiempo; por omisión se usan tantos como
+   * procesadores haya. La bandera opcional <flag> -t M </flag>
+   * parte cada archivo en trozos de M megabytes que se cuentan en paralelo.
+   * La bandera opcional <flag> -m </flag> lee los archivos mapeados a
+   * memoria, como UTF-8. La bandera opcional <flag> -v </flag> reporta en la
+   * salida de error el costo de combinar los trozos de cada archivo. La
+   * bandera opcional <flag> -f M </flag> cuenta cada archivo en una tabla
+   * fuera del heap de a lo más M megabytes (al menos 32); no se puede usar con
+   * <flag> -t </flag>. La bandera opcional <flag> -r N </flag> indica cuántos
+   * hilos generan los archivos HTML cuando los archivos se procesan en una
+   * {@link Tuberia}; por omisión se usan tantos como procesadores haya. La
+   * bandera opcional <flag> -a N </flag> procesa cada archivo en su propio
+   * hilo virtual, con a lo más N archivos abiertos al mismo tiempo, en lugar
+   * de usar <flag> -j </flag> hilos. Los demás argumentos pueden ser
+   * archivos, directorios o patrones como <code>"corpus/*.txt"</code>; véase
+   * {@link Recorrido}. Los archivos terminados en <code>.gz</code> se
+   * descomprimen al leerlos, y cada entrada de un archivo <code>.zip</code>
+   * se procesa como su propio archivo. Si el único archivo es <code>-</code>,
+   * se cuenta la entrada estándar hasta que termine, y se grafica una
+   * instantánea cada <flag> -s N </flag> segundos (10 por omisión; 0 para
+   * nunca) y cada <flag> -p N </flag> palabras (nunca por omisión).
    * @param args
    */
   public void recibe(String[] args) {
@@ -47,6 +149,91 @@ public class Entrada{
           "bandera -o");
           System.exit(1);
         }
+      } else if (args[i].equals("-j")) {
+        hilos = 0;
+        if (i + 1 < args.length) {
+          try {
+            hilos = Integer.parseInt(args[i + 1]);
+          } catch (NumberFormatException nfe) {}
+          i += 1;
+        }
+        if (hilos < 1) {
+          System.err.println("Necesita ingresar un número de hilos positivo " +
+          "seguido de la bandera -j (hilos que cuentan, o archivos al mismo " +
+          "tiempo con -t, -m o -f)");
+          System.exit(1);
+        }
+      } else if (args[i].equals("-a")) {
+        abiertos = 0;
+        if (i + 1 < args.length) {
+          try {
+            abiertos = Integer.parseInt(args[i + 1]);
+          } catch (NumberFormatException nfe) {}
+          i += 1;
+        }
+        if (abiertos < 1) {
+          System.err.println("Necesita ingresar un número de archivos " +
+          "positivo seguido de la bandera -a");
+          System.exit(1);
+        }
+      } else if (args[i].equals("-s") || args[i].equals("-p")) {
+        long n = -1;
+        if (i + 1 < args.length) {
+          try {
+            n = Long.parseLong(args[i + 1]);
+          } catch (NumberFormatException nfe) {}
+        }
+        if (n < 0) {
+          System.err.println("Necesita ingresar un número no negativo " +
+          "seguido de la bandera " + args[i]);
+          System.exit(1);
+        }
+        if (args[i].equals("-s"))
+          segundos = n;
+        else
+          palabras = n;
+        i += 1;
+      } else if (args[i].equals("-r")) {
+        graficadores = 0;
+        if (i + 1 < args.length) {
+          try {
+            graficadores = Integer.parseInt(args[i + 1]);
+          } catch (NumberFormatException nfe) {}
+          i += 1;
+        }
+        if (graficadores < 1) {
+          System.err.println("Necesita ingresar un número de hilos positivo " +
+          "seguido de la bandera -r");
+          System.exit(1);
+        }
+      } else if (args[i].equals("-t")) {
+        if (i + 1 < args.length) {
+          try {
+            trozo = Long.parseLong(args[i + 1]) * 1024 * 1024;
+          } catch (NumberFormatException nfe) {}
+          i += 1;
+        }
+        if (trozo < 1) {
+          System.err.println("Necesita ingresar un número de megabytes " +
+          "positivo seguido de la bandera -t");
+          System.exit(1);
+        }
+      } else if (args[i].equals("-m")) {
+        mapeado = true;
+      } else if (args[i].equals("-v")) {
+        estadisticas = true;
+      } else if (args[i].equals("-f")) {
+        if (i + 1 < args.length) {
+          try {
+            fueraDelHeap = Long.parseLong(args[i + 1]) * 1024 * 1024;
+          } catch (NumberFormatException nfe) {}
+          i += 1;
+        }
+        if (fueraDelHeap < 2 * ContadorFueraDelHeap.PAGINA) {
+          System.err.println("Necesita ingresar un número de megabytes " +
+          "mayor o igual a 32 seguido de la bandera -f");
+          System.exit(1);
+        }
       } else {
         archivosRecibidos.agrega(args[i]);
       }
@@ -56,6 +243,16 @@ public class Entrada{
       "bandera -o. -> \"-o /path/\"");
       System.exit(1);
     }
+    if (trozo > 0 && fueraDelHeap > 0) {
+      System.err.println("Las banderas -t y -f no se pueden usar juntas");
+      System.exit(1);
+    }
+    if (archivosRecibidos.contiene("-") &&
+        archivosRecibidos.getElementos() > 1) {
+      System.err.println("La entrada estándar (-) no se puede usar junto " +
+      "con otros archivos");
+      System.exit(1);
+    }
 
     lectura(archivosRecibidos);
     
@@ -63,58 +260,282 @@ public class Entrada{
 
   /**
    * Lee los archivos que están en la lista de archivosRecibidos y se encarga
-   * de crear un diccionario por cada archivo.
+   * de crear un contador de palabras por cada archivo. Los directorios y
+   * patrones de la lista se recorren con un {@link Recorrido}, y cada archivo
+   * se empieza a procesar en cuanto se descubre. Con la bandera
+   * <flag> -a </flag>, cada archivo se lee, se cuenta y se grafica en su
+   * propio hilo virtual. Si no, y los archivos se cuentan sobre el
+   * vocabulario compartido, se procesan en una {@link Tuberia}: un hilo lee,
+   * <flag> -j </flag> hilos parten y cuentan, y <flag> -r </flag> hilos
+   * grafican, todo al mismo tiempo. Con las banderas <flag> -t </flag>,
+   * <flag> -m </flag> o <flag> -f </flag>, cada archivo se lee, se cuenta y
+   * se grafica en uno de <flag> -j </flag> hilos. En todos los casos el
+   * número de cada archivo generado sólo depende del orden en que se
+   * descubrió, así que si sólo se reciben archivos el resultado es el mismo
+   * sin importar el número de hilos. Las tablas de los archivos sólo se
+   * conservan para comparar sus palabras en el índice si no son más de
+   * {@link GeneraIndex#MAXIMO_COMUNES}; véase {@link TablasIndice}.
    * @param l lista de archivosRecibidos.
    */
   public void lectura(Lista<String> l) {
-    int x = 1;
-
+    if (l.getElementos() == 1 && l.contiene("-")) {
+      porEntradaEstandar();
+      return;
+    }
     GeneraIndex gi = new GeneraIndex();
+    Recorrido recorrido = new Recorrido(l, hilos);
+    Lista<String> archivos = new Lista<>();
+    Lista<TablaConteo> tablas;
+    if (abiertos > 0)
+      tablas = porArchivo(recorrido, archivos, ejecutorVirtual(abiertos),
+                          abiertos);
+    else if (trozo > 0 || mapeado || fueraDelHeap > 0)
+      tablas = porArchivo(recorrido, archivos,
+                          Executors.newFixedThreadPool(hilos), hilos);
+    else
+      tablas = porTuberia(recorrido, archivos);
+    gi.generaArchivo(archivos, tablas, directorio);
+  }
 
-    for (String archivo : l) {
+  /**
+   * Regresa un ejecutor que crea un hilo virtual por tarea. Los hilos
+   * virtuales sólo existen a partir de Java 21, así que el ejecutor se busca
+   * por reflexión; si la máquina virtual no los tiene, se regresa un grupo
+   * fijo de hilos normales, tantos como archivos puede haber abiertos.
+   * @param limite cuántos archivos puede haber abiertos al mismo tiempo.
+   * @return el ejecutor.
+   */
+  private static ExecutorService ejecutorVirtual(int limite) {
+    try {
+      Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService)m.invoke(null);
+    } catch (ReflectiveOperationException roe) {
+      return Executors.newFixedThreadPool(limite);
+    }
+  }
 
-      Diccionario<String, Integer> almacen = new Diccionario<>();
+  /**
+   * Procesa cada archivo en su propia tarea del ejecutor. A lo más
+   * <code>limite</code> tareas pueden estar leyendo al mismo tiempo; las
+   * demás esperan un permiso antes de abrir su archivo. Cada tabla se le
+   * pasa al índice en cuanto se grafica su archivo.
+   * @param fuente los archivos a procesar.
+   * @param archivos la lista donde se guardan los archivos procesados, en
+   *        orden.
+   * @param ejecutor el ejecutor de las tareas.
+   * @param limite cuántos archivos puede haber abiertos al mismo tiempo.
+   * @return las tablas de los archivos, en el orden de la lista de
+   *         archivos, o <code>null</code> si el índice no las conservó.
+   */
+  private Lista<TablaConteo> porArchivo(Iterable<String> fuente,
+                                        Lista<String> archivos,
+                                        ExecutorService ejecutor, int limite) {
+    int x = 1;
 
-      GeneraHTML body = new GeneraHTML();
+    Semaphore permisos = new Semaphore(limite);
+    TablasIndice indice = new TablasIndice();
+    Lista<Future<?>> tareas = new Lista<>();
 
-      try {
+    for (String archivo : fuente) {
+      int n = x++;
+      archivos.agrega(archivo);
+      indice.llega();
+      tareas.agrega(ejecutor.submit(() -> {
+        indice.guarda(n - 1, procesa(archivo, n, permisos));
+        return null;
+      }));
+    }
 
-        BufferedReader br = new BufferedReader(new FileReader(archivo));
-        String input;
+    Iterator<String> nombres = archivos.iterator();
+    for (Future<?> tarea : tareas)
+      espera(tarea, nombres.next());
 
-        while ((input = br.readLine()) != null) {
+    ejecutor.shutdown();
+    try {
+      documentos.close();
+    } catch(IOException ioe) {
+      reporta(ioe, "los archivos zip");
+    }
+    return indice.getTablas();
+  }
 
-          input = transformaCadena(input);
+  /**
+   * Procesa los archivos en una {@link Tuberia}. Si hubo un error con algún
+   * archivo, lo reporta y termina el programa.
+   * @param fuente los archivos a procesar.
+   * @param archivos la lista donde se guardan los archivos procesados, en
+   *        orden.
+   * @return las tablas de los archivos, en el orden de la lista de
+   *         archivos, o <code>null</code> si el índice no las conservó.
+   */
+  private Lista<TablaConteo> porTuberia(Iterable<String> fuente,
+                                        Lista<String> archivos) {
+    Tuberia tuberia = new Tuberia(fuente, vocabulario, directorio, hilos,
+                                  graficadores);
+    try {
+      Lista<TablaConteo> tablas = tuberia.procesa();
+      for (String archivo : tuberia.getArchivos())
+        archivos.agrega(archivo);
+      return tablas;
+    } catch(ExecutionException ee) {
+      reporta(ee.getCause(), ee.getMessage());
+    } catch(InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      System.exit(1);
+    }
+    return null;
+  }
 
-          String[] arr = input.split("\\p{P}");
+  /**
+   * Cuenta la entrada estándar con un {@link ConteoContinuo}, que grafica
+   * instantáneas de la cuenta mientras la sigue leyendo. Si hubo un error al
+   * leer, lo reporta y termina el programa.
+   */
+  private void porEntradaEstandar() {
+    ConteoContinuo conteo = new ConteoContinuo(vocabulario, "-", directorio,
+                                               segundos, palabras);
+    BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
+    try {
+      conteo.procesa(br);
+    } catch(IOException ioe) {
+      reporta(ioe, "la entrada estándar");
+    } catch(InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      System.exit(1);
+    }
+    if (estadisticas)
+      System.err.printf("-: %d instantáneas graficadas.%n",
+                        conteo.getGraficadas());
+  }
 
-          for (String s : arr)
-            if (!s.equals("")) {
-              if (almacen.contiene(s)) {
-                int i = (Integer)almacen.get(s);
-                almacen.agrega(s, ++i);
-              } else {
-                int j = 0;
-                almacen.agrega(s, ++j);
-              }
-            }
-        }
+  /**
+   * Espera a que termine de procesarse un archivo. Si hubo un error al
+   * leerlo, lo reporta y termina el programa.
+   * @param tarea la tarea que procesa el archivo.
+   * @param archivo el nombre del archivo.
+   */
+  private void espera(Future<?> tarea, String archivo) {
+    try {
+      tarea.get();
+    } catch(ExecutionException ee) {
+      reporta(ee.getCause(), archivo);
+    } catch(InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Reporta un error al procesar un archivo y termina el programa.
+   * @param causa el error.
+   * @param archivo el nombre del archivo.
+   */
+  private void reporta(Throwable causa, String archivo) {
+    if (causa instanceof FileNotFoundException)
+      System.err.println("No se encontró alguno de los archivos ingresados.");
+    else if (causa instanceof IOException)
+      System.err.println(String.format("Error al leer %s", archivo));
+    else if (causa instanceof IllegalStateException)
+      System.err.println(String.format("Error al contar %s: %s", archivo,
+                                       causa.getMessage()));
+    else
+      causa.printStackTrace();
+    System.exit(1);
+  }
 
-        br.close();
-      } catch(FileNotFoundException e) {
-        System.err.println("No se encontró alguno de los archivos ingresados.");
-        System.exit(1);
-      } catch(IOException ioe) {
-        System.err.println(String.format("Error al leer %s", archivo));
-        System.exit(1);
+  /**
+   * Cuenta las palabras de un archivo y genera su archivo HTML. El archivo
+   * sólo se abre con un permiso, que se devuelve en cuanto termina de
+   * contarse.
+   * @param archivo el nombre del archivo recibido.
+   * @param x número del archivo que se está generando.
+   * @param permisos los permisos para abrir archivos.
+   * @return la tabla con las palabras del archivo.
+   * @throws IOException si hubo un error al leer el archivo.
+   * @throws InterruptedException si se interrumpió la espera del permiso.
+   */
+  public TablaConteo procesa(String archivo, int x, Semaphore permisos)
+    throws IOException, InterruptedException {
+    TablaConteo almacen;
+    permisos.acquire();
+    try {
+      almacen = cuenta(archivo);
+    } finally {
+      permisos.release();
+    }
+    GeneraHTML body = new GeneraHTML();
+    body.generaArchivo(almacen, archivo, directorio, x);
+    return almacen;
+  }
+
+  /**
+   * Cuenta las palabras de un archivo. Si se pidieron trozos con la bandera
+   * <flag> -t </flag>, el archivo se cuenta en paralelo con
+   * {@link ConteoPorTrozos}, cada hilo en su fragmento de un
+   * {@link ContadorFragmentado}. Con la bandera <flag> -m </flag>, el archivo
+   * se lee con un {@link LectorMapeado}. Con la bandera <flag> -f </flag>,
+   * las palabras se cuentan en un {@link ContadorFueraDelHeap}; si no, se
+   * cuentan por identificador en un {@link ConteoVocabulario} sobre el
+   * vocabulario compartido. Los archivos comprimidos se abren con el
+   * {@link LectorDocumentos} compartido y siempre se leen en orden, desde el
+   * principio, aunque se hayan pedido las banderas <flag> -t </flag> o
+   * <flag> -m </flag>.
+   * @param archivo el nombre del archivo a leer.
+   * @return la tabla con las palabras del archivo.
+   * @throws IOException si hubo un error al leer el archivo.
+   */
+  public TablaConteo cuenta(String archivo) throws IOException {
+    boolean comprimido = LectorDocumentos.esComprimido(archivo);
+    if (trozo > 0 && !comprimido) {
+      ContadorFragmentado fragmentos = new ContadorFragmentado();
+      try {
+        ConteoPorTrozos.cuenta(this, fragmentos, archivo, trozo, mapeado);
+      } catch(NoSuchFileException nsfe) {
+        throw new FileNotFoundException(archivo);
       }
+      ContadorPalabras almacen = fragmentos.combina();
+      if (estadisticas)
+        System.err.printf("%s: %d fragmentos combinados en %.3f ms, " +
+                          "%d entradas movidas.%n", archivo,
+                          fragmentos.getFragmentosCombinados(),
+                          fragmentos.getTiempoCombinacion() / 1000000.0,
+                          fragmentos.getEntradasMovidas());
+      return almacen;
+    }
 
-      body.generaArchivo(almacen, archivo, directorio, x++);
+    TablaConteo almacen = fueraDelHeap > 0 ?
+      new ContadorFueraDelHeap(0, fueraDelHeap) :
+      new ConteoVocabulario(vocabulario);
+    if (mapeado && !comprimido) {
+      try (FileChannel canal = FileChannel.open(Paths.get(archivo),
+                                                StandardOpenOption.READ)) {
+        new LectorMapeado().cuenta(canal, 0, canal.size(), almacen);
+      } catch(NoSuchFileException nsfe) {
+        throw new FileNotFoundException(archivo);
+      }
+      return almacen;
+    }
 
+    try (BufferedReader br = new BufferedReader(documentos.abre(archivo))) {
+      cuentaLineas(br, almacen);
     }
+    return almacen;
+  }
 
-    gi.generaArchivo(l, directorio);
+  /**
+   * Cuenta las palabras de todas las líneas de un lector.
+   * @param br el lector de donde se leen las líneas.
+   * @param almacen la tabla donde se cuentan las palabras.
+   * @throws IOException si hubo un error al leer.
+   */
+  public void cuentaLineas(BufferedReader br, TablaConteo almacen)
+    throws IOException {
+    Tokenizador tokenizador = new Tokenizador();
+    AccionPalabra cuenta = (p, n) -> almacen.incrementa(p, 0, n);
+    String input;
 
+    while ((input = br.readLine()) != null)
+      tokenizador.tokeniza(input, cuenta);
   }
 
   /**
@@ -125,10 +546,7 @@ public class Entrada{
    * @return la cadena transformada.
    */
   public String transformaCadena(String cad) {
-    cad = cad.trim().toLowerCase().replace(" ", ";").replaceAll("\\p{P}",";");
-    cad = Normalizer.normalize(cad, Normalizer.Form.NFD);
-    cad = cad.replaceAll("[\\p{InCombiningDiacriticalMarks}]", "");
-    return cad;
+    return Tokenizador.transformaCadena(cad);
   }
 
 
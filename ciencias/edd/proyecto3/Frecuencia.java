@@ -0,0 +1,100 @@
+package mx.unam.ciencias.edd.proyecto3;
+
+import mx.unam.ciencias.edd.*;
+
+/**
+ * <p>Clase para una palabra junto con su número de repeticiones, tal como se
+ * grafica. Las frecuencias se ordenan de la más repetida a la menos repetida,
+ * y las que se repiten lo mismo, alfabéticamente; así las gráficas no
+ * dependen del orden interno de la tabla de conteo.</p>
+ */
+public class Frecuencia implements Comparable<Frecuencia> {
+
+  /** La palabra. */
+  private String palabra;
+  /** Sus repeticiones. */
+  private int cuenta;
+
+  /**
+   * Construye una frecuencia.
+   * @param palabra la palabra.
+   * @param cuenta sus repeticiones.
+   */
+  public Frecuencia(String palabra, int cuenta) {
+    this.palabra = palabra;
+    this.cuenta = cuenta;
+  }
+
+  /**
+   * Regresa la palabra.
+   * @return la palabra.
+   */
+  public String getPalabra() {
+    return palabra;
+  }
+
+  /**
+   * Regresa las repeticiones de la palabra.
+   * @return las repeticiones de la palabra.
+   */
+  public int getCuenta() {
+    return cuenta;
+  }
+
+  /**
+   * Compara dos frecuencias: va antes la que más se repite, y si se repiten
+   * lo mismo, la que va antes alfabéticamente.
+   */
+  @Override public int compareTo(Frecuencia f) {
+    if (cuenta != f.cuenta)
+      return cuenta > f.cuenta ? -1 : 1;
+    return palabra.compareTo(f.palabra);
+  }
+
+  /**
+   * Regresa las <code>n</code> palabras más repetidas de un contador, en
+   * orden. Sólo se conservan las palabras que van quedando entre las
+   * <code>n</code> primeras, así que no se copia la tabla completa.
+   * @param contador el contador.
+   * @param n cuántas palabras regresar.
+   * @return una lista con a lo más <code>n</code> frecuencias, ordenadas.
+   */
+  public static Lista<Frecuencia> mayores(TablaConteo contador, int n) {
+    Lista<Frecuencia> lista = new Lista<>();
+    if (n <= 0)
+      return lista;
+    Frecuencia[] mayores = new Frecuencia[n];
+    int k = 0;
+    CursorConteo c = contador.cursor();
+    while (c.siguiente()) {
+      if (k == n && c.cuenta() < mayores[k - 1].cuenta)
+        continue;
+      Frecuencia f = new Frecuencia(c.llave(), c.cuenta());
+      if (k == n && f.compareTo(mayores[k - 1]) >= 0)
+        continue;
+      int i = k < n ? k++ : k - 1;
+      while (i > 0 && f.compareTo(mayores[i - 1]) < 0) {
+        mayores[i] = mayores[i - 1];
+        i--;
+      }
+      mayores[i] = f;
+    }
+    for (int i = 0; i < k; i++)
+      lista.agrega(mayores[i]);
+    return lista;
+  }
+
+  /**
+   * Regresa las entradas de un diccionario de palabras, en orden.
+   * @param diccionario el diccionario.
+   * @return una lista con las frecuencias del diccionario, ordenadas.
+   */
+  public static Lista<Frecuencia> ordena(Diccionario<String,Integer>
+                                         diccionario) {
+    Lista<Frecuencia> lista = new Lista<>();
+    CursorDiccionario<String,Integer> c = diccionario.cursor();
+    while (c.siguiente())
+      lista.agrega(new Frecuencia(c.llave(), c.valor()));
+    return Lista.mergeSort(lista);
+  }
+}
@@ -29,12 +29,12 @@ public class GeneraHTML extends CuerpoHTML{
 
   /**
    * Crea el contenido que irá dentro del archivo HTML.
-   * @param d el diccionario con las palabras y el número de veces que se
+   * @param d el contador con las palabras y el número de veces que se
    * repite.
    * @param archivo el nombre del archivo recibido.
    * @return la cadena que genera el HTML.
    */
-  public String cadenaHTML(Diccionario<String,Integer> d, String archivo){
+  public String cadenaHTML(TablaConteo d, String archivo){
     return cadenaPrincipal(archivo) + "<p align=\"center\">" +
      barras.barrasSVG(d) + "</p></br>" + "<p align=\"center\">" +
      pastel.pastelSVG(d) + "</p></br>" + a_svg.cadenaArboles(d) + cadenaFinal();
@@ -43,12 +43,12 @@ public class GeneraHTML extends CuerpoHTML{
   /**
    * Método que genera los archivos HTML con el contenido obtenido de
    * <método>cadenaHTML</método>.
-   * @param d el diccionario del cual se debe generar el archivo.
+   * @param d el contador del cual se debe generar el archivo.
    * @param archivo nombre del archivo recibido.
    * @param directorio donde se generarás los archivos HTML.
    * @param x número del archivo que se está generando.
    */
-  public void generaArchivo(Diccionario<String,Integer> d, String archivo,
+  public void generaArchivo(TablaConteo d, String archivo,
                             String directorio, int x) {
     try {
       File dir = new File(String.format("%sarchivo%s.html", directorio, x));
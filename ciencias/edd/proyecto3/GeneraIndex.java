@@ -9,6 +9,12 @@ import mx.unam.ciencias.edd.*;
 
 public class GeneraIndex extends CuerpoHTML{
 
+  /**
+   * Máximo de archivos con los que se genera la tabla de palabras en común;
+   * la tabla crece con el cuadrado del número de archivos.
+   */
+  public static final int MAXIMO_COMUNES = 100;
+
   /** Constructor vacío. */
   public GeneraIndex() {}
 
@@ -26,37 +32,106 @@ public class GeneraIndex extends CuerpoHTML{
     return svg;
   }
 
+  /**
+   * Regresa cuántas palabras tienen en común dos tablas. Si ambas cuentan
+   * por identificador sobre el mismo vocabulario, se comparan sus
+   * identificadores; si no, se buscan las palabras de la tabla más chica en
+   * la más grande.
+   * @param a la primera tabla.
+   * @param b la segunda tabla.
+   * @return cuántas palabras tienen en común.
+   */
+  public int comunes(TablaConteo a, TablaConteo b) {
+    if (a instanceof ConteoVocabulario && b instanceof ConteoVocabulario) {
+      ConteoVocabulario va = (ConteoVocabulario)a;
+      ConteoVocabulario vb = (ConteoVocabulario)b;
+      if (va.getVocabulario() == vb.getVocabulario())
+        return va.comunes(vb);
+    }
+    if (b.getElementos() < a.getElementos()) {
+      TablaConteo t = a;
+      a = b;
+      b = t;
+    }
+    int comunes = 0;
+    CursorConteo c = a.cursor();
+    while (c.siguiente())
+      if (b.get(c.llave()) > 0)
+        comunes++;
+    return comunes;
+  }
+
+  /**
+   * Crea la tabla con el número de palabras que tiene en común cada pareja
+   * de archivos; la diagonal tiene las palabras distintas de cada archivo.
+   * Cada pareja se compara una sola vez. Si no hay tablas, o hay más de
+   * {@link #MAXIMO_COMUNES}, sólo se indica que la tabla se omitió.
+   * @param tablas las tablas con las palabras de cada archivo, o
+   *        <code>null</code> si no se conservaron.
+   * @return la cadena con la tabla en HTML.
+   */
+  public String tablaComunes(Lista<TablaConteo> tablas) {
+    if (tablas == null || tablas.getElementos() > MAXIMO_COMUNES)
+      return String.format("<p align=\"center\">La tabla de palabras en " +
+      "común sólo se genera con a lo más %d archivos.</p> </br> \n",
+      MAXIMO_COMUNES);
+    int n = tablas.getElementos();
+    TablaConteo[] t = new TablaConteo[n];
+    int k = 0;
+    for (TablaConteo tabla : tablas)
+      t[k++] = tabla;
+    int[][] c = new int[n][n];
+    for (int i = 0; i < n; i++) {
+      c[i][i] = t[i].getElementos();
+      for (int j = i + 1; j < n; j++)
+        c[i][j] = c[j][i] = comunes(t[i], t[j]);
+    }
+    StringBuilder sb = new StringBuilder("<p align=\"center\">Palabras en " +
+    "común</p> \n<table align=\"center\" border=\"1\"> \n<tr><th></th>");
+    for (int j = 1; j <= n; j++)
+      sb.append(String.format("<th>%d</th>", j));
+    sb.append("</tr> \n");
+    for (int i = 0; i < n; i++) {
+      sb.append(String.format("<tr><th>%d</th>", i + 1));
+      for (int j = 0; j < n; j++)
+        sb.append(String.format("<td>%d</td>", c[i][j]));
+      sb.append("</tr> \n");
+    }
+    return sb.append("</table> </br> \n").toString();
+  }
+
   /**
    * Crea el contenido que irá dentro del archivo HTML.
-   * @param d el diccionario con las palabras y el número de veces que se
-   * repite.
-   * @param archivo el nombre del archivo recibido.
+   * @param archivos los nombres de los archivos recibidos.
+   * @param tablas las tablas con las palabras de cada archivo, o
+   *        <code>null</code> si no se conservaron.
    * @return la cadena que genera el HTML.
    */
-  public String cadenaHTML(Lista<String> archivos){
+  public String cadenaHTML(Lista<String> archivos, Lista<TablaConteo> tablas){
     String svg = cadenaPrincipal("Index");
     int x = 1;
     for (int i = 0; i < archivos.getElementos(); i++) {
       String liga = String.format("archivo%s.html", x++);
       svg += ligas(liga);
     }
-    return svg + cadenaFinal();
+    return svg + tablaComunes(tablas) + cadenaFinal();
   }
 
   /**
    * Método que genera los archivos HTML con el contenido obtenido de
    * <método>cadenaHTML</método>.
-   * @param d el diccionario del cual se debe generar el archivo.
-   * @param archivo nombre del archivo recibido.
+   * @param archivo los nombres de los archivos recibidos.
+   * @param tablas las tablas con las palabras de cada archivo, o
+   *        <code>null</code> si no se conservaron.
    * @param directorio donde se generarás los archivos HTML.
-   * @param x número del archivo que se está generando.
    */
-  public void generaArchivo(Lista<String> archivo, String directorio) {
+  public void generaArchivo(Lista<String> archivo, Lista<TablaConteo> tablas,
+                            String directorio) {
     try {
       File dir = new File(String.format("%sindex.html", directorio));
       FileWriter fw = new FileWriter(dir);
       BufferedWriter bw = new BufferedWriter(fw);
-      bw.write(cadenaHTML(archivo));
+      bw.write(cadenaHTML(archivo, tablas));
       bw.close();
       fw.close();
     } catch(IOException ioe) {
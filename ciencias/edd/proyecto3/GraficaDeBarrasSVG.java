@@ -1,6 +1,5 @@
 package mx.unam.ciencias.edd.proyecto3;
 
-import java.util.Iterator;
 import mx.unam.ciencias.edd.*;
 
 /**
@@ -10,6 +9,9 @@ import mx.unam.ciencias.edd.*;
  */
 public class GraficaDeBarrasSVG extends GraficasSVG{
 
+  /** Cuántas palabras se grafican a lo más. */
+  public static final int MAXIMO_BARRAS = 20;
+
   /** Constructor vacío*/
   public GraficaDeBarrasSVG() {
   }
@@ -47,24 +49,19 @@ public class GraficaDeBarrasSVG extends GraficasSVG{
   }
 
   /**
-   * Genera todo el código SVG para dibujar nuestra gráfica de Barras.
+   * Genera todo el código SVG para dibujar nuestra gráfica de Barras. Se
+   * grafican las {@link #MAXIMO_BARRAS} palabras más repetidas, en el orden
+   * de {@link Frecuencia}.
    * @param diccionario del que generaremos la gráfica de barras.
    * @return el código SVG para la gráfica de Barras.
    */
-  public String barrasSVG(Diccionario<String, Integer> diccionario){
+  public String barrasSVG(TablaConteo diccionario){
 
-    Iterator<String> it = diccionario.iteradorLlaves();
+    Lista<Frecuencia> mayores = Frecuencia.mayores(diccionario, MAXIMO_BARRAS);
 
-    int distancia = 0;
-    int x = 0;
+    int distancia = Math.max(mayores.getLongitud(), 1)*100;
+    int x = 200;
     int y = 200;
-    if (diccionario.getElementos() > 20) {
-      distancia = diccionario.getElementos()*15;
-      x = distancia/diccionario.getElementos() * 2;
-    } else {
-      distancia = diccionario.getElementos()*100;
-      x = distancia/diccionario.getElementos() * 2;
-    }
 
     int total = getTotal(diccionario);
 
@@ -72,12 +69,11 @@ public class GraficaDeBarrasSVG extends GraficasSVG{
                 title(distancia/2 - 40, "Gráfica de Barras");
     String b = "";
 
-    for (int i = 0; i < diccionario.getElementos(); i++) {
-      String s = it.next();
-      int height = diccionario.get(s);
+    for (Frecuencia f : mayores) {
+      int height = f.getCuenta();
       int aux = y - (height*10);
       b += barras(x, aux , height*10);
-      b += texto(-215, x, s, getPorcentaje(total, height));
+      b += texto(-215, x, f.getPalabra(), getPorcentaje(total, height));
       x += 15;
     }
 
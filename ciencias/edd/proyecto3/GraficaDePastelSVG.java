@@ -1,6 +1,5 @@
 package mx.unam.ciencias.edd.proyecto3;
 
-import java.util.Iterator;
 import java.util.Random;
 import mx.unam.ciencias.edd.*;
 
@@ -68,25 +67,21 @@ public class GraficaDePastelSVG extends GraficasSVG{
 
   /**
    * Nos regresa un diccionario nuevo con las palabras frecuentes del
-   * diccionario original.
-   * @param diccionario del archivo completo.
+   * contador original.
+   * @param contador del archivo completo.
    * @return el diccionario con las palabras más repetidas.
    */
-  public Diccionario<String,Integer> getDiccionario(Diccionario<String,Integer>
-                                                    diccionario) {
+  public Diccionario<String,Integer> getDiccionario(TablaConteo contador) {
     Diccionario<String,Integer> diccionario_aux = new Diccionario<>();
 
-    Iterator<String> it = diccionario.iteradorLlaves();
+    CursorConteo c = contador.cursor();
 
-    int total = getTotal(diccionario);
-    float media = getMedia(total, diccionario.getElementos());
+    int total = getTotal(contador);
+    float media = getMedia(total, contador.getElementos());
 
-    for (int i = 0; i < diccionario.getElementos(); i++) {
-      String s = it.next();
-      int palabras = diccionario.get(s);
-      if (palabras > media)
-        diccionario_aux.agrega(s, palabras);
-    }
+    while (c.siguiente())
+      if (c.cuenta() > media)
+        diccionario_aux.agrega(c.llave(), c.cuenta());
 
     return diccionario_aux;
   }
@@ -117,32 +112,30 @@ public class GraficaDePastelSVG extends GraficasSVG{
                                                     diccionario) {
     Diccionario<String,Integer> diccionario_otros = new Diccionario<>();
 
-    Iterator<String> it = diccionario.iteradorLlaves();
+    CursorDiccionario<String,Integer> c = diccionario.cursor();
 
     int total = getTotal(diccionario);
     float media = getMedia(total, diccionario.getElementos());
 
-    for (int i = 0; i < diccionario.getElementos(); i++) {
-      String s = it.next();
-      int palabras = diccionario.get(s);
-      if (palabras <= media)
-        diccionario_otros.agrega(s, palabras);
-    }
+    while (c.siguiente())
+      if (c.valor() <= media)
+        diccionario_otros.agrega(c.llave(), c.valor());
 
     return diccionario_otros;
   }
 
   /**
-   * Genera todo el código SVG para dibujar nuestra gráfica de Pastel.
-   * @param diccionario del que generaremos la gráfica de pastel.
+   * Genera todo el código SVG para dibujar nuestra gráfica de Pastel. Las
+   * palabras frecuentes se listan en el orden de {@link Frecuencia}.
+   * @param contador del que generaremos la gráfica de pastel.
    * @return el código SVG para la gráfica de Pastel.
    */
-  public String pastelSVG(Diccionario<String, Integer> diccionario) {
-    diccionario = getDiccionario(diccionario);
+  public String pastelSVG(TablaConteo contador) {
+    Diccionario<String,Integer> diccionario = getDiccionario(contador);
 
     Diccionario<String,Integer> otros = getDiccionarioOtros(diccionario);
 
-    Iterator<String> it = diccionario.iteradorLlaves();
+    Lista<Frecuencia> frecuentes = Frecuencia.ordena(diccionario);
 
     int distancia = 800;
     String fl = setFirstLine(distancia, 600) + fuente() +
@@ -158,11 +151,9 @@ public class GraficaDePastelSVG extends GraficasSVG{
 
     svg += elipse();
 
-    for (int i = 0; i < diccionario.getElementos(); i++) {
+    for (Frecuencia f : frecuentes) {
       String c = getRandomColor();
-      String s = it.next();
-      int v = diccionario.get(s);
-      svg += texto(y, y_text, c, s, v);
+      svg += texto(y, y_text, c, f.getPalabra(), f.getCuenta());
 
       svg += rebanadas(l1,l2,a,b,color);
 
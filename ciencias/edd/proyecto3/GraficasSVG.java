@@ -1,6 +1,5 @@
 package mx.unam.ciencias.edd.proyecto3;
 
-import java.util.Iterator;
 import mx.unam.ciencias.edd.*;
 
 /**
@@ -76,15 +75,26 @@ public abstract class GraficasSVG {
    * @return el número total de palabras.
    */
   public int getTotal(Diccionario<String,Integer> dicc) {
-    Iterator<String> it = dicc.iteradorLlaves();
+    CursorDiccionario<String,Integer> c = dicc.cursor();
 
     int total = 0;
-    int p = 0;
-    for (int j = 0; j < dicc.getElementos(); j++) {
-      String s = it.next();
-      p = dicc.get(s);
-      total += p;
-    }
+    while (c.siguiente())
+      total += c.valor();
+    return total;
+  }
+
+  /**
+   * Suma las repeticiones de las palabras de un contador para obtener el
+   * total de palabras.
+   * @param contador contador del cual queremos el total de palabras.
+   * @return el número total de palabras.
+   */
+  public int getTotal(TablaConteo contador) {
+    CursorConteo c = contador.cursor();
+
+    int total = 0;
+    while (c.siguiente())
+      total += c.cuenta();
     return total;
   }
 
@@ -0,0 +1,340 @@
+package mx.unam.ciencias.edd.proyecto3;
+
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import mx.unam.ciencias.edd.*;
+
+/**
+ * <p>Clase que abre los documentos de entrada. Un documento puede ser:</p>
+ *
+ * <ul>
+ *   <li>Un archivo de texto.</li>
+ *   <li>Un archivo comprimido con gzip (terminado en <code>.gz</code>), que se
+ *   descomprime mientras se lee. Si el archivo es grande, se descomprime en
+ *   otro hilo, así que la descompresión se traslapa con el conteo.</li>
+ *   <li>Una entrada de un archivo zip, con nombre
+ *   <code>archivo.zip!/entrada</code>; cada entrada es su propio documento
+ *   (véase {@link Recorrido}).</li>
+ * </ul>
+ *
+ * <p>Un mismo lector se puede usar desde varios hilos. Cada archivo zip se
+ * abre una sola vez y se comparte entre todas las entradas que se lean de
+ * él, aunque se lean al mismo tiempo; un zip se cierra cuando ya no se lee
+ * ninguna de sus entradas y se pidió una entrada de otro, así que las
+ * entradas de un mismo zip, que llegan juntas, nunca lo vuelven a
+ * abrir.</p>
+ */
+public class LectorDocumentos implements AutoCloseable {
+
+  /** Flujo que lee de otro flujo en un hilo aparte, por bloques. */
+  private static class FlujoEnHilo extends InputStream {
+
+    /** Marca de fin en la cola. */
+    private static final byte[] FIN = new byte[0];
+
+    /** Los bloques leídos. */
+    private BlockingQueue<byte[]> bloques;
+    /** El hilo que lee. */
+    private Thread hilo;
+    /** El flujo original. */
+    private InputStream origen;
+    /** El error del hilo que lee, si hubo. */
+    private volatile IOException error;
+    /** El bloque actual. */
+    private byte[] actual;
+    /** La siguiente posición a leer del bloque actual. */
+    private int posicion;
+
+    /** Construye el flujo y empieza a leer del original. */
+    public FlujoEnHilo(InputStream origen, String nombre) {
+      this.origen = origen;
+      bloques = new ArrayBlockingQueue<>(BLOQUES_EN_COLA);
+      actual = new byte[0];
+      hilo = new Thread(this::lee, "descompresion " + nombre);
+      hilo.setDaemon(true);
+      hilo.start();
+    }
+
+    /** Lee el flujo original en bloques hasta terminarlo. */
+    private void lee() {
+      try {
+        byte[] b = new byte[BLOQUE];
+        int n;
+        int k = 0;
+        while ((n = origen.read(b, k, b.length - k)) != -1) {
+          k += n;
+          if (k < b.length)
+            continue;
+          bloques.put(b);
+          b = new byte[BLOQUE];
+          k = 0;
+        }
+        if (k > 0)
+          bloques.put(Arrays.copyOf(b, k));
+        bloques.put(FIN);
+      } catch (InterruptedException ie) {
+      } catch (IOException ioe) {
+        error = ioe;
+        bloques.clear();
+        bloques.offer(FIN);
+      }
+    }
+
+    /** Pasa al siguiente bloque; regresa false si ya no hay. */
+    private boolean siguiente() throws IOException {
+      while (actual != FIN && posicion == actual.length) {
+        try {
+          actual = bloques.take();
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Lectura interrumpida");
+        }
+        posicion = 0;
+      }
+      if (error != null)
+        throw error;
+      return actual != FIN;
+    }
+
+    /** Lee un byte. */
+    @Override public int read() throws IOException {
+      return siguiente() ? actual[posicion++] & 0xff : -1;
+    }
+
+    /** Lee bytes del bloque actual. */
+    @Override public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0)
+        return 0;
+      if (!siguiente())
+        return -1;
+      int n = Math.min(len, actual.length - posicion);
+      System.arraycopy(actual, posicion, b, off, n);
+      posicion += n;
+      return n;
+    }
+
+    /**
+     * Detiene al hilo que lee, espera a que termine, y después cierra el
+     * flujo original, para no cerrarlo mientras el hilo todavía lo lee.
+     */
+    @Override public void close() throws IOException {
+      hilo.interrupt();
+      try {
+        hilo.join();
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+      } finally {
+        origen.close();
+      }
+    }
+  }
+
+  /** Archivo zip abierto, con cuántas de sus entradas se están leyendo. */
+  private static class Zip {
+
+    /** El nombre del archivo. */
+    private String nombre;
+    /** El archivo abierto. */
+    private ZipFile archivo;
+    /** Cuántas entradas del archivo se están leyendo. */
+    private int lectores;
+
+    /** Construye un zip abierto. */
+    public Zip(String nombre, ZipFile archivo) {
+      this.nombre = nombre;
+      this.archivo = archivo;
+    }
+  }
+
+  /** Flujo de una entrada de un zip, que avisa al lector al cerrarse. */
+  private class FlujoEntrada extends FilterInputStream {
+
+    /** El zip de la entrada. */
+    private Zip zip;
+    /** Si el flujo ya se cerró. */
+    private boolean cerrado;
+
+    /** Construye el flujo de una entrada. */
+    public FlujoEntrada(InputStream entrada, Zip zip) {
+      super(entrada);
+      this.zip = zip;
+    }
+
+    /** Cierra el flujo y suelta el zip. */
+    @Override public void close() throws IOException {
+      if (cerrado)
+        return;
+      cerrado = true;
+      try {
+        super.close();
+      } finally {
+        suelta(zip);
+      }
+    }
+  }
+
+  /** Separador entre el nombre de un archivo zip y el de su entrada. */
+  public static final String SEPARADOR = "!/";
+
+  /**
+   * Tamaño a partir del cual un archivo gzip se descomprime en otro hilo, en
+   * bytes.
+   */
+  public static final long DESCOMPRESION_EN_HILO = 1024 * 1024;
+
+  /** Tamaño de los bloques descomprimidos en otro hilo. */
+  private static final int BLOQUE = 256 * 1024;
+
+  /** Cuántos bloques descomprimidos puede haber esperando. */
+  private static final int BLOQUES_EN_COLA = 8;
+
+  /** Tamaño del búfer del descompresor. */
+  private static final int BUFER_GZIP = 64 * 1024;
+
+  /** Los archivos zip abiertos. */
+  private Lista<Zip> zips;
+  /** El último archivo zip del que se pidió una entrada. */
+  private Zip ultimo;
+
+  /**
+   * Construye un lector de documentos.
+   */
+  public LectorDocumentos() {
+    zips = new Lista<>();
+  }
+
+  /**
+   * Nos dice si un documento está comprimido, y por lo tanto sólo se puede
+   * leer en orden, desde el principio.
+   * @param nombre el nombre del documento.
+   * @return <code>true</code> si el documento está comprimido,
+   *         <code>false</code> en otro caso.
+   */
+  public static boolean esComprimido(String nombre) {
+    return nombre.endsWith(".gz") || nombre.contains(SEPARADOR);
+  }
+
+  /**
+   * Nos dice si un archivo es un zip cuyas entradas son documentos.
+   * @param nombre el nombre del archivo.
+   * @return <code>true</code> si el archivo es un zip, <code>false</code> en
+   *         otro caso.
+   */
+  public static boolean esZip(String nombre) {
+    return nombre.endsWith(".zip") && !nombre.contains(SEPARADOR);
+  }
+
+  /**
+   * Abre un documento para leerlo como texto en la codificación por omisión.
+   * @param nombre el nombre del documento.
+   * @return un lector para el documento.
+   * @throws FileNotFoundException si el documento no existe.
+   * @throws IOException si hubo un error al abrir el documento.
+   */
+  public Reader abre(String nombre) throws IOException {
+    int i = nombre.indexOf(SEPARADOR);
+    if (i >= 0)
+      return new InputStreamReader(abreEntrada(nombre.substring(0, i),
+                                               nombre.substring(i + 2)));
+    if (nombre.endsWith(".gz")) {
+      FileInputStream fis = new FileInputStream(nombre);
+      try {
+        long tamano = fis.getChannel().size();
+        InputStream gzip = new GZIPInputStream(fis, BUFER_GZIP);
+        if (tamano >= DESCOMPRESION_EN_HILO)
+          gzip = new FlujoEnHilo(gzip, nombre);
+        return new InputStreamReader(gzip);
+      } catch (IOException ioe) {
+        fis.close();
+        throw ioe;
+      }
+    }
+    return new FileReader(nombre);
+  }
+
+  /**
+   * Abre una entrada de un archivo zip. Si el zip ya está abierto, se
+   * reutiliza; si no, se abre, y se cierran los demás zips de los que ya no
+   * se lee ninguna entrada.
+   * @param archivo el nombre del archivo zip.
+   * @param entrada el nombre de la entrada.
+   * @return un flujo para la entrada.
+   * @throws FileNotFoundException si el zip o la entrada no existen.
+   * @throws IOException si hubo un error al abrir el zip.
+   */
+  private synchronized InputStream abreEntrada(String archivo, String entrada)
+    throws IOException {
+    Zip z = null;
+    for (Zip abierto : zips)
+      if (abierto.nombre.equals(archivo))
+        z = abierto;
+    if (z == null) {
+      z = new Zip(archivo, new ZipFile(archivo));
+      zips.agrega(z);
+    }
+    ultimo = z;
+    for (Zip abierto : zips.copia())
+      if (abierto != z && abierto.lectores == 0)
+        cierra(abierto);
+    ZipEntry e = z.archivo.getEntry(entrada);
+    if (e == null)
+      throw new FileNotFoundException(archivo + SEPARADOR + entrada);
+    InputStream flujo = new FlujoEntrada(z.archivo.getInputStream(e), z);
+    z.lectores++;
+    return flujo;
+  }
+
+  /**
+   * Registra que se terminó de leer una entrada de un zip. Si ya no se lee
+   * ninguna entrada del zip y se pidió una entrada de otro, lo cierra.
+   * @param z el zip.
+   * @throws IOException si hubo un error al cerrar el zip.
+   */
+  private synchronized void suelta(Zip z) throws IOException {
+    if (--z.lectores == 0 && z != ultimo && zips.contiene(z))
+      cierra(z);
+  }
+
+  /**
+   * Cierra un zip y lo saca de los zips abiertos.
+   * @param z el zip.
+   * @throws IOException si hubo un error al cerrarlo.
+   */
+  private void cierra(Zip z) throws IOException {
+    zips.elimina(z);
+    z.archivo.close();
+  }
+
+  /**
+   * Cierra todos los archivos zip abiertos. Debe llamarse cuando ya no se
+   * lea ninguna entrada; el lector se puede seguir usando después.
+   * @throws IOException si hubo un error al cerrarlos.
+   */
+  @Override public synchronized void close() throws IOException {
+    IOException error = null;
+    for (Zip z : zips) {
+      try {
+        z.archivo.close();
+      } catch (IOException ioe) {
+        error = ioe;
+      }
+    }
+    zips.limpia();
+    ultimo = null;
+    if (error != null)
+      throw error;
+  }
+}
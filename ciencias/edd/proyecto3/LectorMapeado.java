@@ -0,0 +1,186 @@
+package mx.unam.ciencias.edd.proyecto3;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import mx.unam.ciencias.edd.*;
+
+/**
+ * <p>Clase que cuenta las palabras de un archivo en UTF-8 mapeándolo a
+ * memoria. El archivo se recorre en ventanas mapeadas con
+ * {@link FileChannel#map}, y los bytes se decodifican a mano directamente en
+ * un arreglo de caracteres que se reutiliza para cada línea; de ahí las
+ * líneas pasan al {@link Tokenizador}, y las palabras al contador, que sólo
+ * crea la cadena de una palabra la primera vez que la ve. No se crea ninguna
+ * cadena por línea, y como sólo una ventana está mapeada a la vez, el archivo
+ * puede ser más grande que el heap.</p>
+ *
+ * <p>Las líneas se separan igual que con <code>readLine</code>, y las
+ * secuencias mal formadas se reemplazan con U+FFFD igual que el decodificador
+ * de UTF-8 de Java, así que las cuentas son las mismas que al leer el archivo
+ * con un lector en UTF-8.</p>
+ */
+public class LectorMapeado {
+
+  /** Tamaño de las ventanas mapeadas. */
+  private static final long VENTANA = 64L * 1024 * 1024;
+
+  /** Carácter de reemplazo para secuencias mal formadas. */
+  private static final char REEMPLAZO = '�';
+
+  /** El tokenizador de las líneas. */
+  private Tokenizador tokenizador;
+
+  /** El arreglo donde se decodifica la línea actual. */
+  private char[] linea;
+
+  /** La longitud de la línea actual. */
+  private int longitud;
+
+  /**
+   * Construye un lector mapeado.
+   */
+  public LectorMapeado() {
+    tokenizador = new Tokenizador();
+    linea = new char[256];
+  }
+
+  /**
+   * Cuenta las palabras del rango [inicio, fin) de un archivo. El rango debe
+   * empezar al inicio de una línea.
+   * @param canal el canal del archivo.
+   * @param inicio dónde empieza el rango.
+   * @param fin dónde termina el rango.
+   * @param almacen la tabla donde se cuentan las palabras.
+   * @throws IOException si hubo un error al leer el archivo.
+   */
+  public void cuenta(FileChannel canal, long inicio, long fin,
+                     TablaConteo almacen) throws IOException {
+    AccionPalabra accion = (p, n) -> almacen.incrementa(p, 0, n);
+    long posicion = inicio;
+    long ventana = VENTANA;
+    while (posicion < fin) {
+      long tamano = Math.min(ventana, fin - posicion);
+      MappedByteBuffer mapa =
+        canal.map(FileChannel.MapMode.READ_ONLY, posicion, tamano);
+      int leidos = procesa(mapa, (int)tamano, posicion + tamano == fin, accion);
+      if (leidos > 0) {
+        posicion += leidos;
+        ventana = VENTANA;
+      } else if (ventana * 2 <= Integer.MAX_VALUE) {
+        ventana *= 2;
+      } else {
+        throw new IOException("Línea demasiado larga");
+      }
+    }
+  }
+
+  /**
+   * Procesa las líneas completas de una ventana.
+   * @param mapa la ventana mapeada.
+   * @param n el tamaño de la ventana.
+   * @param ultima si la ventana llega al fin del rango; si no, la última
+   *        línea incompleta se deja para la siguiente ventana.
+   * @param accion la acción a realizar sobre cada palabra.
+   * @return cuántos bytes de la ventana se consumieron.
+   */
+  private int procesa(MappedByteBuffer mapa, int n, boolean ultima,
+                      AccionPalabra accion) {
+    int i = 0;
+    int consumidos = 0;
+    longitud = 0;
+    while (i < n) {
+      byte b = mapa.get(i);
+      if (b == '\n' || b == '\r') {
+        tokenizador.tokeniza(linea, longitud, accion);
+        longitud = 0;
+        i++;
+        if (b == '\r' && i < n && mapa.get(i) == '\n')
+          i++;
+        consumidos = i;
+      } else if (b >= 0) {
+        agrega((char)b);
+        i++;
+      } else {
+        i = decodifica(mapa, i, n);
+      }
+    }
+    if (!ultima)
+      return consumidos;
+    if (longitud > 0)
+      tokenizador.tokeniza(linea, longitud, accion);
+    return n;
+  }
+
+  /** Nos dice si un byte está en el rango [bajo, alto]. */
+  private static boolean enRango(byte b, int bajo, int alto) {
+    int x = b & 0xFF;
+    return x >= bajo && x <= alto;
+  }
+
+  /**
+   * Decodifica la secuencia de UTF-8 que empieza en el índice, y la agrega a
+   * la línea. Una secuencia mal formada se reemplaza por un solo U+FFFD, y se
+   * consume sólo su parte válida más larga, como lo hace Java.
+   * @return el índice siguiente a la secuencia.
+   */
+  private int decodifica(MappedByteBuffer mapa, int i, int n) {
+    int b0 = mapa.get(i) & 0xFF;
+    if (b0 < 0xC2 || b0 > 0xF4) {
+      agrega(REEMPLAZO);
+      return i + 1;
+    }
+    if (b0 < 0xE0) {
+      if (i + 1 < n && enRango(mapa.get(i + 1), 0x80, 0xBF)) {
+        agrega((char)(((b0 & 0x1F) << 6) | (mapa.get(i + 1) & 0x3F)));
+        return i + 2;
+      }
+      agrega(REEMPLAZO);
+      return i + 1;
+    }
+    int bajo = 0x80;
+    int alto = 0xBF;
+    if (b0 == 0xE0)
+      bajo = 0xA0;
+    else if (b0 == 0xF0)
+      bajo = 0x90;
+    else if (b0 == 0xF4)
+      alto = 0x8F;
+    if (i + 1 >= n || !enRango(mapa.get(i + 1), bajo, alto)) {
+      agrega(REEMPLAZO);
+      return i + 1;
+    }
+    if (i + 2 >= n || !enRango(mapa.get(i + 2), 0x80, 0xBF)) {
+      agrega(REEMPLAZO);
+      return i + 2;
+    }
+    if (b0 < 0xF0) {
+      char c = (char)(((b0 & 0x0F) << 12) | ((mapa.get(i + 1) & 0x3F) << 6) |
+                      (mapa.get(i + 2) & 0x3F));
+      /* Java reemplaza los sustitutos codificados completos con un solo
+       * U+FFFD. */
+      agrega(Character.isSurrogate(c) ? REEMPLAZO : c);
+      return i + 3;
+    }
+    if (i + 3 >= n || !enRango(mapa.get(i + 3), 0x80, 0xBF)) {
+      agrega(REEMPLAZO);
+      return i + 3;
+    }
+    int cp = ((b0 & 0x07) << 18) | ((mapa.get(i + 1) & 0x3F) << 12) |
+      ((mapa.get(i + 2) & 0x3F) << 6) | (mapa.get(i + 3) & 0x3F);
+    agrega(Character.highSurrogate(cp));
+    agrega(Character.lowSurrogate(cp));
+    return i + 4;
+  }
+
+  /** Agrega un carácter a la línea actual. */
+  private void agrega(char c) {
+    if (longitud == linea.length) {
+      char[] nuevo = new char[linea.length * 2];
+      System.arraycopy(linea, 0, nuevo, 0, longitud);
+      linea = nuevo;
+    }
+    linea[longitud++] = c;
+  }
+}
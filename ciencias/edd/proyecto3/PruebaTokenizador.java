@@ -0,0 +1,107 @@
+package mx.unam.ciencias.edd.proyecto3;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.text.NumberFormat;
+
+import mx.unam.ciencias.edd.*;
+
+/**
+ * Programa que compara al {@link Tokenizador} con el método original de
+ * {@link Entrada}: primero verifica que ambos produzcan exactamente las mismas
+ * palabras en cada línea de los archivos recibidos, y después mide cuánto
+ * tarda cada uno en partir todas las líneas.
+ */
+public class PruebaTokenizador {
+
+  /** Número de veces que se parte cada línea al medir. */
+  private static final int REPETICIONES = 5;
+
+  /** Imprime el uso del programa y lo termina. */
+  private static void uso() {
+    System.err.println("Uso: java mx.unam.ciencias.edd.proyecto3." +
+                       "PruebaTokenizador ARCHIVO...");
+    System.exit(1);
+  }
+
+  /** Parte una línea con el método original. */
+  private static Lista<String> original(String linea) {
+    Lista<String> palabras = new Lista<>();
+    for (String s : Tokenizador.transformaCadena(linea).split("\\p{P}"))
+      if (!s.equals(""))
+        palabras.agrega(s);
+    return palabras;
+  }
+
+  /** Parte una línea con el tokenizador. */
+  private static Lista<String> nuevo(Tokenizador t, String linea) {
+    Lista<String> palabras = new Lista<>();
+    t.tokeniza(linea, (p, n) -> palabras.agrega(new String(p, 0, n)));
+    return palabras;
+  }
+
+  public static void main(String[] args) {
+    if (args.length == 0)
+      uso();
+
+    Lista<String> lineas = new Lista<>();
+    long caracteres = 0;
+    try {
+      for (String archivo : args) {
+        try (BufferedReader br = new BufferedReader(new FileReader(archivo))) {
+          String linea;
+          while ((linea = br.readLine()) != null) {
+            lineas.agrega(linea);
+            caracteres += linea.length();
+          }
+        }
+      }
+    } catch (IOException ioe) {
+      System.err.println("Error al leer los archivos: " + ioe.getMessage());
+      System.exit(1);
+    }
+
+    Tokenizador tokenizador = new Tokenizador();
+    int diferentes = 0;
+    for (String linea : lineas) {
+      if (!original(linea).equals(nuevo(tokenizador, linea))) {
+        if (diferentes++ < 10)
+          System.out.printf("Diferencia en la línea: %s\n", linea);
+      }
+    }
+    NumberFormat nf = NumberFormat.getIntegerInstance();
+    System.out.printf("%s líneas diferentes de %s.\n",
+                      nf.format(diferentes), nf.format(lineas.getElementos()));
+
+    long tiempoInicial, tiempoTotal;
+    long[] palabras = new long[1];
+    double megas = caracteres * REPETICIONES / (1024.0 * 1024.0);
+
+    tiempoInicial = System.nanoTime();
+    for (int r = 0; r < REPETICIONES; r++)
+      for (String linea : lineas)
+        for (String s : Tokenizador.transformaCadena(linea).split("\\p{P}"))
+          if (!s.equals(""))
+            palabras[0]++;
+    tiempoTotal = System.nanoTime() - tiempoInicial;
+    System.out.printf("%2.9f segundos con el método original " +
+                      "(%s palabras, %.2f MB/s).\n",
+                      (tiempoTotal/1000000000.0), nf.format(palabras[0]),
+                      megas / (tiempoTotal/1000000000.0));
+
+    palabras[0] = 0;
+    tiempoInicial = System.nanoTime();
+    for (int r = 0; r < REPETICIONES; r++)
+      for (String linea : lineas)
+        tokenizador.tokeniza(linea, (p, n) -> palabras[0]++);
+    tiempoTotal = System.nanoTime() - tiempoInicial;
+    System.out.printf("%2.9f segundos con el tokenizador " +
+                      "(%s palabras, %.2f MB/s).\n",
+                      (tiempoTotal/1000000000.0), nf.format(palabras[0]),
+                      megas / (tiempoTotal/1000000000.0));
+
+    if (diferentes > 0)
+      System.exit(1);
+  }
+}
@@ -0,0 +1,308 @@
+package mx.unam.ciencias.edd.proyecto3;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import mx.unam.ciencias.edd.*;
+
+/**
+ * <p>Clase que descubre los archivos a procesar a partir de los argumentos.
+ * Cada argumento puede ser un archivo, un directorio (que se recorre
+ * completo) o un patrón de tipo <em>glob</em>, como
+ * <code>corpus/**&#47;*.txt</code>, que se compara contra las rutas debajo
+ * del directorio fijo más largo del patrón. Como en el shell, un componente
+ * <code>**</code> también coincide con cero directorios, así que ese patrón
+ * incluye tanto a <code>corpus/a.txt</code> como a
+ * <code>corpus/b/c/a.txt</code>.</p>
+ *
+ * <p>Los directorios se recorren en paralelo en un {@link ForkJoinPool}, con
+ * una tarea por subdirectorio, y cada archivo se entrega en cuanto se
+ * encuentra: el recorrido se itera mientras todavía se está haciendo, así que
+ * el primer archivo se puede procesar sin esperar a que termine. Los
+ * argumentos se recorren en orden, uno después del otro; dentro de un
+ * directorio, los archivos salen en el orden en que se encuentran. Sólo se
+ * entregan archivos regulares, y las ligas simbólicas a directorios no se
+ * siguen. Cada entrada de un archivo zip se entrega como su propio
+ * documento. Un patrón que no coincide con ningún archivo se entrega tal
+ * cual, como lo haría el shell, para que se reporte como un archivo que no
+ * existe.</p>
+ *
+ * <p>Un recorrido sólo se puede iterar una vez, y desde un solo hilo.</p>
+ */
+public class Recorrido implements Iterable<String> {
+
+  /** Tarea que recorre un directorio. */
+  @SuppressWarnings("serial")
+  private class Directorio extends RecursiveAction {
+
+    /** El directorio. */
+    private Path directorio;
+    /** La profundidad del directorio dentro del recorrido. */
+    private int profundidad;
+    /** El patrón de los archivos, o null si se entregan todos. */
+    private PathMatcher patron;
+    /** La profundidad máxima del patrón. */
+    private int maxima;
+
+    /** Construye la tarea para un directorio. */
+    public Directorio(Path directorio, int profundidad, PathMatcher patron,
+                      int maxima) {
+      this.directorio = directorio;
+      this.profundidad = profundidad;
+      this.patron = patron;
+      this.maxima = maxima;
+    }
+
+    /** Entrega los archivos del directorio y recorre sus subdirectorios. */
+    @Override protected void compute() {
+      Lista<Directorio> subdirectorios = new Lista<>();
+      try (DirectoryStream<Path> ds = Files.newDirectoryStream(directorio)) {
+        for (Path p : ds) {
+          BasicFileAttributes a;
+          try {
+            a = Files.readAttributes(p, BasicFileAttributes.class,
+                                     LinkOption.NOFOLLOW_LINKS);
+          } catch (IOException ioe) {
+            System.err.println(String.format("No se pudo leer %s", p));
+            continue;
+          }
+          if (a.isDirectory()) {
+            if (profundidad < maxima)
+              subdirectorios.agrega(new Directorio(p, profundidad + 1, patron,
+                                                   maxima));
+          } else if (a.isRegularFile() ||
+                     (a.isSymbolicLink() && Files.isRegularFile(p))) {
+            if (patron == null || patron.matches(p))
+              entrega(p.toString());
+          }
+        }
+      } catch (IOException | DirectoryIteratorException e) {
+        System.err.println(String.format("No se pudo recorrer %s",
+                                         directorio));
+      }
+      for (Directorio d : subdirectorios)
+        d.fork();
+      for (Directorio d : subdirectorios)
+        d.join();
+    }
+  }
+
+  /** Iterador que espera a cada archivo conforme se descubre. */
+  private class Iterador implements Iterator<String> {
+
+    /** El siguiente archivo, o null si todavía no se ha pedido. */
+    private String siguiente;
+
+    /** Nos dice si hay otro archivo, esperándolo si es necesario. */
+    @Override public boolean hasNext() {
+      if (siguiente == null) {
+        try {
+          siguiente = cola.take();
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          siguiente = FIN;
+        }
+      }
+      return siguiente != FIN;
+    }
+
+    /** Regresa el siguiente archivo. */
+    @Override public String next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+      String s = siguiente;
+      siguiente = null;
+      return s;
+    }
+  }
+
+  /** Marca de fin en la cola. */
+  private static final String FIN = new String("");
+
+  /** Los caracteres que hacen que un argumento sea un patrón. */
+  private static final String COMODINES = "*?[{";
+
+  /** Los argumentos a recorrer. */
+  private Lista<String> entradas;
+  /** Los hilos que recorren los directorios. */
+  private ForkJoinPool grupo;
+  /** Los archivos descubiertos. */
+  private BlockingQueue<String> cola;
+  /** Si el recorrido ya empezó. */
+  private boolean iniciado;
+  /** Cuántos archivos se han entregado. */
+  private AtomicInteger entregados;
+
+  /**
+   * Construye un recorrido para una lista de argumentos.
+   * @param entradas los archivos, directorios o patrones a recorrer.
+   * @param hilos cuántos hilos recorren los directorios.
+   * @throws IllegalArgumentException si el número de hilos no es positivo.
+   */
+  public Recorrido(Lista<String> entradas, int hilos) {
+    if (hilos < 1)
+      throw new IllegalArgumentException();
+    this.entradas = entradas;
+    grupo = new ForkJoinPool(hilos);
+    cola = new LinkedBlockingQueue<>();
+    entregados = new AtomicInteger();
+  }
+
+  /**
+   * Regresa un iterador que entrega los archivos conforme se descubren. El
+   * recorrido empieza la primera vez que se llama a este método.
+   * @return un iterador para los archivos.
+   * @throws IllegalStateException si el recorrido ya se iteró.
+   */
+  @Override public Iterator<String> iterator() {
+    if (iniciado)
+      throw new IllegalStateException("El recorrido ya se iteró");
+    iniciado = true;
+    Thread t = new Thread(this::recorre, "recorrido");
+    t.setDaemon(true);
+    t.start();
+    return new Iterador();
+  }
+
+  /** Recorre los argumentos en orden, y marca el fin en la cola. */
+  private void recorre() {
+    try {
+      for (String entrada : entradas)
+        recorre(entrada);
+    } finally {
+      grupo.shutdown();
+      cola.add(FIN);
+    }
+  }
+
+  /**
+   * Recorre un argumento. Los argumentos que no son directorios ni patrones,
+   * y los patrones que no coinciden con ningún archivo, se entregan tal
+   * cual, aunque no existan, para que el error se reporte al leerlos.
+   * @param entrada el argumento.
+   */
+  private void recorre(String entrada) {
+    if (Files.isDirectory(Paths.get(entrada))) {
+      grupo.invoke(new Directorio(Paths.get(entrada), 0, null,
+                                  Integer.MAX_VALUE));
+      return;
+    }
+    Path patron = Paths.get(entrada);
+    int fijos = 0;
+    while (fijos < patron.getNameCount() &&
+           !esPatron(patron.getName(fijos).toString()))
+      fijos++;
+    if (fijos == patron.getNameCount()) {
+      entrega(entrada);
+      return;
+    }
+
+    Path base = fijos == 0 ? patron.getRoot() :
+      patron.subpath(0, fijos);
+    if (fijos > 0 && patron.getRoot() != null)
+      base = patron.getRoot().resolve(base);
+    if (base == null)
+      base = Paths.get("");
+    int maxima = entrada.contains("**") ? Integer.MAX_VALUE :
+      patron.getNameCount() - fijos - 1;
+    PathMatcher matcher =
+      FileSystems.getDefault().getPathMatcher("glob:" + opcionales(entrada));
+    int antes = entregados.get();
+    if (Files.isDirectory(base))
+      grupo.invoke(new Directorio(base, 0, matcher, maxima));
+    if (entregados.get() == antes)
+      entrega(entrada);
+  }
+
+  /**
+   * Entrega un archivo. Si el archivo es un zip que existe, se entrega cada
+   * una de sus entradas como un documento; véase {@link LectorDocumentos}.
+   * @param archivo el archivo.
+   */
+  private void entrega(String archivo) {
+    entregados.incrementAndGet();
+    if (!LectorDocumentos.esZip(archivo) || !Files.exists(Paths.get(archivo))) {
+      cola.add(archivo);
+      return;
+    }
+    try (ZipFile zip = new ZipFile(archivo)) {
+      Enumeration<? extends ZipEntry> entradas = zip.entries();
+      while (entradas.hasMoreElements()) {
+        ZipEntry e = entradas.nextElement();
+        if (!e.isDirectory())
+          cola.add(archivo + LectorDocumentos.SEPARADOR + e.getName());
+      }
+    } catch (IOException ioe) {
+      System.err.println(String.format("No se pudo recorrer %s", archivo));
+    }
+  }
+
+  /**
+   * Reescribe cada componente <code>**</code> de un patrón que va seguido
+   * de otro componente para que también coincida con cero directorios: en
+   * los patrones de Java, <code>a/**&#47;b</code> no coincide con
+   * <code>a/b</code>. Los componentes dentro de un grupo o de una clase de
+   * caracteres se dejan como están, porque los grupos no se pueden anidar.
+   * @param patron el patrón.
+   * @return el patrón reescrito.
+   */
+  private static String opcionales(String patron) {
+    StringBuilder sb = new StringBuilder();
+    int grupos = 0;
+    boolean clase = false;
+    for (int i = 0; i < patron.length(); i++) {
+      char c = patron.charAt(i);
+      if (c == '\\' && i + 1 < patron.length()) {
+        sb.append(c).append(patron.charAt(++i));
+        continue;
+      }
+      if (clase) {
+        clase = c != ']';
+      } else if (c == '[') {
+        clase = true;
+      } else if (c == '{') {
+        grupos++;
+      } else if (c == '}') {
+        grupos--;
+      } else if (grupos == 0 && patron.startsWith("**/", i) &&
+                 (i == 0 || patron.charAt(i - 1) == '/')) {
+        sb.append("{**/,}");
+        i += 2;
+        continue;
+      }
+      sb.append(c);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Nos dice si un componente de una ruta tiene comodines.
+   * @param componente el componente.
+   * @return <code>true</code> si el componente tiene comodines,
+   *         <code>false</code> en otro caso.
+   */
+  private static boolean esPatron(String componente) {
+    for (int i = 0; i < componente.length(); i++)
+      if (COMODINES.indexOf(componente.charAt(i)) >= 0)
+        return true;
+    return false;
+  }
+}
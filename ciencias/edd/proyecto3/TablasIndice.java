@@ -0,0 +1,68 @@
+package mx.unam.ciencias.edd.proyecto3;
+
+import mx.unam.ciencias.edd.*;
+
+/**
+ * <p>Clase que conserva las tablas de los archivos que necesita el índice
+ * para su tabla de palabras en común. La tabla del índice sólo se genera
+ * con a lo más {@link GeneraIndex#MAXIMO_COMUNES} archivos; en cuanto llegan
+ * más, las tablas conservadas se sueltan, y las que se terminen después ya
+ * no se guardan, así que la memoria no crece con el número de archivos.</p>
+ *
+ * <p>Los archivos se pueden registrar y sus tablas guardar desde varios
+ * hilos.</p>
+ */
+public class TablasIndice {
+
+  /** Las tablas conservadas, por número de archivo; null si se soltaron. */
+  private TablaConteo[] tablas;
+  /** Cuántos archivos han llegado. */
+  private int llegados;
+
+  /** Construye un registro vacío. */
+  public TablasIndice() {
+    tablas = new TablaConteo[16];
+  }
+
+  /**
+   * Registra que llegó un archivo más. Si con él se pasa del máximo, suelta
+   * todas las tablas conservadas.
+   */
+  public synchronized void llega() {
+    if (++llegados > GeneraIndex.MAXIMO_COMUNES)
+      tablas = null;
+  }
+
+  /**
+   * Guarda la tabla de un archivo ya graficado, si el índice todavía puede
+   * necesitarla; si no, la tabla se suelta.
+   * @param n el número del archivo, empezando en 0.
+   * @param tabla la tabla del archivo.
+   */
+  public synchronized void guarda(int n, TablaConteo tabla) {
+    if (tablas == null)
+      return;
+    if (n >= tablas.length) {
+      TablaConteo[] t = new TablaConteo[Math.max(2 * tablas.length, n + 1)];
+      System.arraycopy(tablas, 0, t, 0, tablas.length);
+      tablas = t;
+    }
+    tablas[n] = tabla;
+  }
+
+  /**
+   * Regresa las tablas de todos los archivos, en orden, o
+   * <code>null</code> si llegaron más archivos de los que el índice compara.
+   * Sólo debe llamarse cuando ya se guardaron las tablas de todos los
+   * archivos.
+   * @return las tablas de los archivos, o <code>null</code>.
+   */
+  public synchronized Lista<TablaConteo> getTablas() {
+    if (tablas == null)
+      return null;
+    Lista<TablaConteo> l = new Lista<>();
+    for (int i = 0; i < llegados; i++)
+      l.agrega(tablas[i]);
+    return l;
+  }
+}
@@ -0,0 +1,359 @@
+package mx.unam.ciencias.edd.proyecto3;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * <p>Clase que parte líneas en palabras en una sola pasada. Produce
+ * exactamente las mismas palabras que {@link #transformaCadena} seguido de
+ * <code>split("\\p{P}")</code>, descartando las vacías: las palabras se
+ * separan por espacios y signos de puntuación, se pasan a minúsculas y se les
+ * quitan los acentos.</p>
+ *
+ * <p>Los caracteres ASCII se procesan directamente sobre un arreglo que se
+ * reutiliza, sin expresiones regulares ni cadenas intermedias. Los demás
+ * caracteres se pliegan con una tabla que guarda, para cada carácter, su
+ * minúscula sin acentos; la tabla se llena conforme aparecen caracteres
+ * nuevos, así que "canción" se vuelve "cancion" sin pasar por
+ * {@link Normalizer}. Sólo las palabras con caracteres cuyo plegado depende
+ * de sus vecinos (marcas combinantes que el orden canónico podría reacomodar,
+ * o caracteres fuera del plano básico) se normalizan completas, y sólo esa
+ * palabra, no la línea completa. Las líneas con una sigma mayúscula (cuya
+ * minúscula depende de las letras vecinas) y los idiomas con reglas de
+ * minúsculas contextuales usan el método original.</p>
+ *
+ * <p>Los tokenizadores no son seguros para usarse desde varios hilos.</p>
+ */
+public class Tokenizador {
+
+  /** Vista de cadena sobre un arreglo de caracteres, para no copiarlo. */
+  private static class Linea implements CharSequence {
+
+    /** El arreglo con la línea. */
+    private char[] arreglo;
+    /** Dónde empieza la línea en el arreglo. */
+    private int inicio;
+    /** La longitud de la línea. */
+    private int longitud;
+
+    /** Regresa la longitud de la línea. */
+    @Override public int length() {
+      return longitud;
+    }
+
+    /** Regresa el carácter en el índice. */
+    @Override public char charAt(int i) {
+      return arreglo[inicio + i];
+    }
+
+    /** Regresa una subsecuencia de la línea. */
+    @Override public CharSequence subSequence(int inicio, int fin) {
+      return toString().subSequence(inicio, fin);
+    }
+
+    /** Regresa la línea como cadena. */
+    @Override public String toString() {
+      return new String(arreglo, inicio, longitud);
+    }
+  }
+
+  /** Los signos de puntuación ASCII, según <code>\p{P}</code>. */
+  private static final boolean[] PUNTUACION_ASCII = new boolean[128];
+
+  /**
+   * El plegado de cada carácter del plano básico: su minúscula descompuesta
+   * y sin acentos. Se llena conforme se necesita; como las cadenas son
+   * inmutables, varios hilos pueden llenarla sin sincronizarse.
+   */
+  private static final String[] PLIEGUES = new String[Character.MAX_VALUE + 1];
+
+  /** Marca en la tabla de los caracteres que no se pueden plegar solos. */
+  private static final String INSEGURO = new String("");
+
+  static {
+    for (char c = 0; c < 128; c++)
+      PUNTUACION_ASCII[c] = esPuntuacion(c);
+  }
+
+  /** Si el idioma por omisión tiene minúsculas contextuales. */
+  private boolean contextual;
+
+  /** El arreglo donde se arma la palabra actual. */
+  private char[] buffer;
+
+  /** La longitud de la palabra actual. */
+  private int longitud;
+
+  /** Si la palabra actual tiene que pasar por {@link Normalizer}. */
+  private boolean normaliza;
+
+  /** La vista que se reutiliza para las líneas en arreglos. */
+  private Linea linea;
+
+  /**
+   * Construye un tokenizador.
+   */
+  public Tokenizador() {
+    String idioma = Locale.getDefault().getLanguage();
+    contextual = idioma.equals("tr") || idioma.equals("az") ||
+      idioma.equals("lt");
+    buffer = new char[64];
+    linea = new Linea();
+  }
+
+  /**
+   * Parte una línea guardada en un arreglo en palabras, y realiza la acción
+   * sobre cada una. El arreglo no se copia.
+   * @param arreglo el arreglo con la línea a partir.
+   * @param longitud la longitud de la línea.
+   * @param accion la acción a realizar sobre cada palabra.
+   */
+  public void tokeniza(char[] arreglo, int longitud, AccionPalabra accion) {
+    tokeniza(arreglo, 0, longitud, accion);
+  }
+
+  /**
+   * Parte una línea guardada en un rango de un arreglo en palabras, y
+   * realiza la acción sobre cada una. El arreglo no se copia.
+   * @param arreglo el arreglo con la línea a partir.
+   * @param inicio dónde empieza la línea en el arreglo.
+   * @param longitud la longitud de la línea.
+   * @param accion la acción a realizar sobre cada palabra.
+   */
+  public void tokeniza(char[] arreglo, int inicio, int longitud,
+                       AccionPalabra accion) {
+    linea.arreglo = arreglo;
+    linea.inicio = inicio;
+    linea.longitud = longitud;
+    tokeniza(linea, accion);
+    linea.arreglo = null;
+  }
+
+  /**
+   * Parte una línea en palabras, y realiza la acción sobre cada una.
+   * @param linea la línea a partir.
+   * @param accion la acción a realizar sobre cada palabra.
+   */
+  public void tokeniza(CharSequence linea, AccionPalabra accion) {
+    int inicio = 0;
+    int fin = linea.length();
+    while (inicio < fin && linea.charAt(inicio) <= ' ')
+      inicio++;
+    while (fin > inicio && linea.charAt(fin - 1) <= ' ')
+      fin--;
+
+    if (contextual || tieneSigma(linea, inicio, fin)) {
+      lento(linea.toString(), accion);
+      return;
+    }
+
+    longitud = 0;
+    normaliza = false;
+    for (int i = inicio; i < fin; i++) {
+      char c = linea.charAt(i);
+      if (c < 128) {
+        if (c == ' ' || PUNTUACION_ASCII[c]) {
+          emite(accion);
+          continue;
+        }
+        if (c >= 'A' && c <= 'Z')
+          c += 'a' - 'A';
+        agrega(c);
+        continue;
+      }
+      if (Character.isHighSurrogate(c) && i + 1 < fin &&
+          Character.isLowSurrogate(linea.charAt(i + 1))) {
+        int cp = Character.toCodePoint(c, linea.charAt(++i));
+        if (esPuntuacion(cp)) {
+          emite(accion);
+          continue;
+        }
+        normaliza = true;
+        agrega(c);
+        agrega(linea.charAt(i));
+        continue;
+      }
+      String p = normaliza ? INSEGURO : pliegue(c);
+      if (p == INSEGURO) {
+        if (esPuntuacion(c)) {
+          emite(accion);
+          continue;
+        }
+        normaliza = true;
+        agrega(c);
+        continue;
+      }
+      for (int k = 0; k < p.length(); k++) {
+        char d = p.charAt(k);
+        if (esPuntuacion(d))
+          emite(accion);
+        else
+          agrega(d);
+      }
+    }
+    emite(accion);
+  }
+
+  /** Agrega un carácter a la palabra actual. */
+  private void agrega(char c) {
+    if (longitud == buffer.length) {
+      char[] nuevo = new char[buffer.length * 2];
+      System.arraycopy(buffer, 0, nuevo, 0, longitud);
+      buffer = nuevo;
+    }
+    buffer[longitud++] = c;
+  }
+
+  /**
+   * Entrega la palabra actual a la acción, si no es vacía. Las palabras que
+   * no se pudieron plegar carácter por carácter se normalizan antes, y
+   * pueden resultar en varias. Desde el primer carácter inseguro, el resto
+   * de la palabra se guarda sin plegar, para que el orden canónico vea los
+   * mismos caracteres que en la línea original.
+   */
+  private void emite(AccionPalabra accion) {
+    if (longitud == 0)
+      return;
+    if (normaliza) {
+      String palabra = new String(buffer, 0, longitud);
+      parte(pliega(palabra), accion);
+    } else {
+      accion.actua(buffer, longitud);
+    }
+    longitud = 0;
+    normaliza = false;
+  }
+
+  /**
+   * Regresa el plegado de un carácter, calculándolo la primera vez.
+   * @param c el carácter a plegar.
+   * @return el plegado del carácter, o {@link #INSEGURO} si el carácter no
+   *         se puede plegar solo.
+   */
+  private static String pliegue(char c) {
+    String p = PLIEGUES[c];
+    if (p == null) {
+      p = calculaPliegue(c);
+      PLIEGUES[c] = p;
+    }
+    return p;
+  }
+
+  /**
+   * Calcula el plegado de un carácter. Si el resultado tiene marcas
+   * combinantes que sobreviven, el orden canónico podría reacomodarlas con
+   * las de los caracteres vecinos, así que el carácter es inseguro.
+   */
+  private static String calculaPliegue(char c) {
+    String p = pliega(String.valueOf(c));
+    for (int i = 0; i < p.length(); i++) {
+      char d = p.charAt(i);
+      if (Character.isSurrogate(d))
+        return INSEGURO;
+      switch (Character.getType(d)) {
+        case Character.NON_SPACING_MARK:
+        case Character.ENCLOSING_MARK:
+        case Character.COMBINING_SPACING_MARK:
+          return INSEGURO;
+      }
+    }
+    return p;
+  }
+
+  /**
+   * Pasa a minúsculas y quita los acentos a una palabra, como lo hace
+   * {@link #transformaCadena}.
+   * @param palabra la palabra a plegar.
+   * @return la palabra plegada.
+   */
+  private static String pliega(String palabra) {
+    palabra = Normalizer.normalize(palabra.toLowerCase(), Normalizer.Form.NFD);
+    StringBuilder sb = new StringBuilder(palabra.length());
+    for (int i = 0; i < palabra.length(); i++) {
+      char c = palabra.charAt(i);
+      if (c < '\u0300' || c > '\u036f')
+        sb.append(c);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Parte una cadena en los signos de puntuación que tenga, y entrega cada
+   * pedazo no vacío a la acción.
+   */
+  private void parte(String s, AccionPalabra accion) {
+    longitud = 0;
+    for (int i = 0; i < s.length(); ) {
+      int cp = s.codePointAt(i);
+      int n = Character.charCount(cp);
+      if (esPuntuacion(cp)) {
+        if (longitud > 0)
+          accion.actua(buffer, longitud);
+        longitud = 0;
+      } else {
+        for (int k = 0; k < n; k++)
+          agrega(s.charAt(i + k));
+      }
+      i += n;
+    }
+    if (longitud > 0)
+      accion.actua(buffer, longitud);
+  }
+
+  /** Parte la línea con el método original. */
+  private void lento(String linea, AccionPalabra accion) {
+    for (String s : transformaCadena(linea).split("\\p{P}")) {
+      if (s.equals(""))
+        continue;
+      longitud = 0;
+      for (int i = 0; i < s.length(); i++)
+        agrega(s.charAt(i));
+      accion.actua(buffer, longitud);
+    }
+    longitud = 0;
+  }
+
+  /** Nos dice si el rango de la línea tiene una sigma mayúscula. */
+  private static boolean tieneSigma(CharSequence linea, int inicio, int fin) {
+    for (int i = inicio; i < fin; i++)
+      if (linea.charAt(i) == '\u03a3')
+        return true;
+    return false;
+  }
+
+  /**
+   * Nos dice si un punto de código es un signo de puntuación, en el sentido
+   * de <code>\p{P}</code>.
+   * @param cp el punto de código.
+   * @return <code>true</code> si es un signo de puntuación,
+   *         <code>false</code> en otro caso.
+   */
+  public static boolean esPuntuacion(int cp) {
+    switch (Character.getType(cp)) {
+      case Character.CONNECTOR_PUNCTUATION:
+      case Character.DASH_PUNCTUATION:
+      case Character.START_PUNCTUATION:
+      case Character.END_PUNCTUATION:
+      case Character.INITIAL_QUOTE_PUNCTUATION:
+      case Character.FINAL_QUOTE_PUNCTUATION:
+      case Character.OTHER_PUNCTUATION:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Transforma las palabras de los archivos para quitarles acentos, pasarlas
+   * todas a minúsculas, y en cada espacio se agrega un punto y coma para
+   * indicar la separación de palaras.
+   * @param cad la cadena a transformar.
+   * @return la cadena transformada.
+   */
+  public static String transformaCadena(String cad) {
+    cad = cad.trim().toLowerCase().replace(" ", ";").replaceAll("\\p{P}",";");
+    cad = Normalizer.normalize(cad, Normalizer.Form.NFD);
+    cad = cad.replaceAll("[\\p{InCombiningDiacriticalMarks}]", "");
+    return cad;
+  }
+}
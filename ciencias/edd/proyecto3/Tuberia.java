@@ -0,0 +1,420 @@
+package mx.unam.ciencias.edd.proyecto3;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import mx.unam.ciencias.edd.*;
+
+/**
+ * <p>Clase que procesa una secuencia de archivos en una tubería de cuatro
+ * etapas, cada una con sus propios hilos:</p>
+ *
+ * <ol>
+ *   <li>Un lector lee los archivos en el orden en que llegan, en bloques
+ *   grandes de líneas completas. Los archivos se numeran en ese orden, y la
+ *   secuencia puede seguir creciendo mientras la tubería trabaja.</li>
+ *   <li>Varios tokenizadores parten cada bloque en palabras y las cuentan en
+ *   una tabla parcial sobre el vocabulario compartido.</li>
+ *   <li>Un contador suma las tablas parciales en la tabla de su archivo, y
+ *   cuando el archivo está completo lo manda a graficar.</li>
+ *   <li>Varios graficadores generan el archivo HTML de cada archivo.</li>
+ * </ol>
+ *
+ * <p>Las etapas se comunican con colas acotadas: si una etapa se atrasa, la
+ * anterior se detiene al llenar su cola, así que la memoria no crece sin
+ * límite, y mientras tanto la lectura del disco y el trabajo del procesador
+ * se traslapan. El resultado es el mismo sin importar cuántos hilos tenga
+ * cada etapa.</p>
+ *
+ * <p>La tabla de cada archivo se suelta en cuanto se grafica, a menos que
+ * el índice la necesite; véase {@link TablasIndice}.</p>
+ */
+public class Tuberia {
+
+  /** Bloque de líneas completas de un archivo. */
+  private static class Bloque {
+
+    /** El número del archivo, empezando en 0. */
+    private int archivo;
+    /** El arreglo con las líneas. */
+    private char[] datos;
+    /** Cuántos caracteres del arreglo son válidos. */
+    private int longitud;
+    /** Si es el último bloque del archivo, cuántos bloques tiene; 0 si no. */
+    private int total;
+
+    /** Construye un bloque. */
+    public Bloque(int archivo, char[] datos, int longitud, int total) {
+      this.archivo = archivo;
+      this.datos = datos;
+      this.longitud = longitud;
+      this.total = total;
+    }
+  }
+
+  /** Cuenta parcial de un bloque. */
+  private static class Parcial {
+
+    /** El número del archivo, empezando en 0. */
+    private int archivo;
+    /** La tabla con las palabras del bloque. */
+    private ConteoVocabulario tabla;
+    /** Si es el último bloque del archivo, cuántos bloques tiene; 0 si no. */
+    private int total;
+
+    /** Construye una cuenta parcial. */
+    public Parcial(int archivo, ConteoVocabulario tabla, int total) {
+      this.archivo = archivo;
+      this.tabla = tabla;
+      this.total = total;
+    }
+  }
+
+  /** Archivo a medio contar. */
+  private static class Pendiente {
+
+    /** La tabla del archivo. */
+    private ConteoVocabulario tabla;
+    /** Cuántos bloques se han sumado. */
+    private int sumados;
+    /** Cuántos bloques tiene el archivo; 0 si todavía no se sabe. */
+    private int total;
+  }
+
+  /** Tamaño mínimo de los bloques, en caracteres. */
+  public static final int BLOQUE = 1 << 20;
+
+  /** Marca de fin en la cola de bloques. */
+  private static final Bloque FIN_BLOQUES = new Bloque(-1, null, 0, 0);
+
+  /** Marca de fin en la cola de cuentas parciales. */
+  private static final Parcial FIN_PARCIALES = new Parcial(-1, null, 0);
+
+  /** Marca de fin en la cola de archivos contados. */
+  private static final Integer FIN_CONTADOS = -1;
+
+  /** Los archivos a procesar. */
+  private Iterable<String> fuente;
+  /** Los archivos que han llegado, por número. */
+  private String[] archivos;
+  /** Cuántos archivos han llegado. */
+  private int llegados;
+  /** El vocabulario compartido. */
+  private Vocabulario vocabulario;
+  /** El directorio donde se generan los archivos HTML. */
+  private String directorio;
+  /** Número de tokenizadores. */
+  private int tokenizadores;
+  /** Número de graficadores. */
+  private int graficadores;
+
+  /** Cola entre el lector y los tokenizadores. */
+  private BlockingQueue<Bloque> bloques;
+  /** Cola entre los tokenizadores y el contador. */
+  private BlockingQueue<Parcial> parciales;
+  /** Cola entre el contador y los graficadores. */
+  private BlockingQueue<Integer> contados;
+
+  /** La tabla de cada archivo contado que todavía no se grafica. */
+  private TablaConteo[] tablas;
+  /** Las tablas que conserva el índice. */
+  private TablasIndice indice;
+  /** Los hilos de todas las etapas. */
+  private ExecutorService ejecutor;
+  /** El primer error de cualquier etapa. */
+  private Throwable error;
+  /** El archivo donde ocurrió el primer error. */
+  private int archivoError;
+
+  /**
+   * Construye una tubería para una secuencia de archivos.
+   * @param fuente los archivos a procesar; se iteran desde el hilo lector.
+   * @param vocabulario el vocabulario compartido.
+   * @param directorio el directorio donde se generan los archivos HTML.
+   * @param tokenizadores número de hilos que parten y cuentan los bloques.
+   * @param graficadores número de hilos que generan los archivos HTML.
+   * @throws IllegalArgumentException si algún número de hilos no es
+   *         positivo.
+   */
+  public Tuberia(Iterable<String> fuente, Vocabulario vocabulario,
+                 String directorio, int tokenizadores, int graficadores) {
+    if (tokenizadores < 1 || graficadores < 1)
+      throw new IllegalArgumentException();
+    this.fuente = fuente;
+    archivos = new String[16];
+    this.vocabulario = vocabulario;
+    this.directorio = directorio;
+    this.tokenizadores = tokenizadores;
+    this.graficadores = graficadores;
+    bloques = new ArrayBlockingQueue<>(2 * tokenizadores);
+    parciales = new ArrayBlockingQueue<>(2 * tokenizadores);
+    contados = new ArrayBlockingQueue<>(2 * graficadores);
+    tablas = new TablaConteo[archivos.length];
+    indice = new TablasIndice();
+  }
+
+  /**
+   * Procesa todos los archivos y espera a que terminen todas las etapas. Si
+   * alguna etapa falla, todas se detienen.
+   * @return las tablas de los archivos, en el orden en que llegaron, o
+   *         <code>null</code> si llegaron más de los que compara el índice.
+   * @throws ExecutionException si alguna etapa falló; su mensaje es el
+   *         archivo donde falló, y su causa el error original.
+   * @throws InterruptedException si se interrumpió la espera.
+   */
+  public Lista<TablaConteo> procesa()
+    throws ExecutionException, InterruptedException {
+    ejecutor = Executors.newFixedThreadPool(2 + tokenizadores + graficadores);
+    /* El lector va al último: ninguna etapa puede fallar, y detener al
+     * ejecutor, antes de que empiece la lectura. */
+    for (int i = 0; i < graficadores; i++)
+      ejecutor.execute(this::grafica);
+    ejecutor.execute(this::cuenta);
+    for (int i = 0; i < tokenizadores; i++)
+      ejecutor.execute(this::tokeniza);
+    ejecutor.execute(this::lee);
+    ejecutor.shutdown();
+    try {
+      while (!ejecutor.awaitTermination(1, TimeUnit.SECONDS))
+        ;
+    } catch (InterruptedException ie) {
+      ejecutor.shutdownNow();
+      throw ie;
+    }
+
+    synchronized (this) {
+      if (error != null)
+        throw new ExecutionException(archivos[archivoError], error);
+    }
+    return indice.getTablas();
+  }
+
+  /**
+   * Regresa los archivos que se procesaron, en el orden en que llegaron.
+   * @return los archivos que se procesaron.
+   */
+  public synchronized Lista<String> getArchivos() {
+    Lista<String> l = new Lista<>();
+    for (int i = 0; i < llegados; i++)
+      l.agrega(archivos[i]);
+    return l;
+  }
+
+  /**
+   * Registra un archivo que llegó.
+   * @param archivo el archivo.
+   * @return el número del archivo.
+   */
+  private synchronized int agrega(String archivo) {
+    if (llegados == archivos.length) {
+      String[] a = new String[archivos.length * 2];
+      TablaConteo[] t = new TablaConteo[a.length];
+      System.arraycopy(archivos, 0, a, 0, llegados);
+      System.arraycopy(tablas, 0, t, 0, llegados);
+      archivos = a;
+      tablas = t;
+    }
+    archivos[llegados] = archivo;
+    indice.llega();
+    return llegados++;
+  }
+
+  /**
+   * Regresa el nombre de un archivo.
+   * @param n el número del archivo.
+   * @return el nombre del archivo.
+   */
+  private synchronized String archivo(int n) {
+    return archivos[n];
+  }
+
+  /**
+   * Guarda la tabla de un archivo contado.
+   * @param n el número del archivo.
+   * @param tabla la tabla del archivo.
+   */
+  private synchronized void guarda(int n, TablaConteo tabla) {
+    tablas[n] = tabla;
+  }
+
+  /**
+   * Regresa la tabla de un archivo contado, y la suelta.
+   * @param n el número del archivo.
+   * @return la tabla del archivo.
+   */
+  private synchronized TablaConteo toma(int n) {
+    TablaConteo t = tablas[n];
+    tablas[n] = null;
+    return t;
+  }
+
+  /**
+   * Registra el primer error y detiene todas las etapas.
+   * @param archivo el número del archivo donde ocurrió el error.
+   * @param t el error.
+   */
+  private synchronized void falla(int archivo, Throwable t) {
+    if (error != null)
+      return;
+    error = t;
+    archivoError = archivo;
+    ejecutor.shutdownNow();
+  }
+
+  /**
+   * Etapa de lectura: lee los archivos en el orden en que llegan. Los
+   * archivos se abren con un {@link LectorDocumentos}, así que pueden estar
+   * comprimidos.
+   */
+  private void lee() {
+    int n = 0;
+    try (LectorDocumentos documentos = new LectorDocumentos()) {
+      for (String archivo : fuente) {
+        n = agrega(archivo);
+        lee(n, archivo, documentos);
+      }
+      for (int i = 0; i < tokenizadores; i++)
+        bloques.put(FIN_BLOQUES);
+    } catch (InterruptedException ie) {
+    } catch (Throwable t) {
+      falla(n, t);
+    }
+  }
+
+  /**
+   * Lee un archivo en bloques de líneas completas. Cada bloque se corta
+   * después de su último fin de línea, y lo que sobra pasa al siguiente; si
+   * un bloque no tiene ningún fin de línea, crece.
+   * @param n el número del archivo.
+   * @param archivo el nombre del archivo.
+   * @param documentos el lector con el que se abre el archivo.
+   * @throws IOException si hubo un error al leer el archivo.
+   * @throws InterruptedException si se interrumpió la espera en la cola.
+   */
+  private void lee(int n, String archivo, LectorDocumentos documentos)
+    throws IOException, InterruptedException {
+    int total = 0;
+    try (Reader lector = documentos.abre(archivo)) {
+      char[] datos = new char[BLOQUE];
+      int longitud = 0;
+      int leidos;
+      while ((leidos = lector.read(datos, longitud,
+                                   datos.length - longitud)) != -1) {
+        longitud += leidos;
+        if (longitud < datos.length)
+          continue;
+        int corte = longitud;
+        while (corte > 0 && datos[corte - 1] != '\n' && datos[corte - 1] != '\r')
+          corte--;
+        if (corte == 0) {
+          char[] nuevo = new char[datos.length * 2];
+          System.arraycopy(datos, 0, nuevo, 0, longitud);
+          datos = nuevo;
+          continue;
+        }
+        int resto = longitud - corte;
+        char[] siguiente = new char[Math.max(BLOQUE, 2 * resto)];
+        System.arraycopy(datos, corte, siguiente, 0, resto);
+        bloques.put(new Bloque(n, datos, corte, 0));
+        total++;
+        datos = siguiente;
+        longitud = resto;
+      }
+      bloques.put(new Bloque(n, datos, longitud, total + 1));
+    }
+  }
+
+  /**
+   * Etapa de tokenización: parte cada bloque en líneas igual que
+   * <code>readLine</code>, y cuenta sus palabras en una tabla parcial.
+   */
+  private void tokeniza() {
+    Tokenizador tokenizador = new Tokenizador();
+    Bloque b = null;
+    try {
+      while ((b = bloques.take()) != FIN_BLOQUES) {
+        ConteoVocabulario tabla = new ConteoVocabulario(vocabulario);
+        AccionPalabra cuenta = (p, n) -> tabla.incrementa(p, 0, n);
+        char[] datos = b.datos;
+        int inicio = 0;
+        for (int i = 0; i < b.longitud; i++) {
+          if (datos[i] != '\n' && datos[i] != '\r')
+            continue;
+          tokenizador.tokeniza(datos, inicio, i - inicio, cuenta);
+          inicio = i + 1;
+        }
+        tokenizador.tokeniza(datos, inicio, b.longitud - inicio, cuenta);
+        parciales.put(new Parcial(b.archivo, tabla, b.total));
+      }
+      parciales.put(FIN_PARCIALES);
+    } catch (InterruptedException ie) {
+    } catch (Throwable t) {
+      falla(b == null ? 0 : b.archivo, t);
+    }
+  }
+
+  /**
+   * Etapa de conteo: suma las tablas parciales en la tabla de su archivo, y
+   * manda a graficar cada archivo en cuanto se sumaron todos sus bloques.
+   */
+  private void cuenta() {
+    Diccionario<Integer, Pendiente> pendientes = new Diccionario<>();
+    int terminados = 0;
+    Parcial p = null;
+    try {
+      while (terminados < tokenizadores) {
+        p = parciales.take();
+        if (p == FIN_PARCIALES) {
+          terminados++;
+          continue;
+        }
+        Pendiente pendiente = pendientes.getOPorOmision(p.archivo, null);
+        if (pendiente == null) {
+          pendiente = new Pendiente();
+          pendiente.tabla = p.tabla;
+          pendientes.agrega(p.archivo, pendiente);
+        } else {
+          pendiente.tabla.combina(p.tabla);
+        }
+        pendiente.sumados++;
+        if (p.total > 0)
+          pendiente.total = p.total;
+        if (pendiente.sumados == pendiente.total) {
+          guarda(p.archivo, pendiente.tabla);
+          pendientes.elimina(p.archivo);
+          contados.put(p.archivo);
+        }
+      }
+      for (int i = 0; i < graficadores; i++)
+        contados.put(FIN_CONTADOS);
+    } catch (InterruptedException ie) {
+    } catch (Throwable t) {
+      falla(p == null ? 0 : p.archivo, t);
+    }
+  }
+
+  /**
+   * Etapa de graficación: genera el archivo HTML de cada archivo, y le pasa
+   * su tabla al índice.
+   */
+  private void grafica() {
+    GeneraHTML body = new GeneraHTML();
+    int n = 0;
+    try {
+      while ((n = contados.take()) != FIN_CONTADOS) {
+        TablaConteo tabla = toma(n);
+        body.generaArchivo(tabla, archivo(n), directorio, n + 1);
+        indice.guarda(n, tabla);
+      }
+    } catch (InterruptedException ie) {
+    } catch (Throwable t) {
+      falla(n, t);
+    }
+  }
+}